@@ -0,0 +1,60 @@
+package graph;
+
+/**
+ * The result of a breadth-first search from a single source: the number of
+ * hops from the source to every node and the parent of every node in the
+ * BFS tree, both indexed by node id.
+ */
+public final class BfsTree
+{
+    private final int source;
+    private final int[] hops;
+    private final int[] parents;
+
+    /**
+     * Create a BFS tree. The arrays are not copied.
+     * 
+     * @param source id of the source node
+     * @param hops hop counts indexed by id, {@link IGraph#UNREACHABLE} for unreached nodes
+     * @param parents parent ids indexed by id, -1 for the source and unreached nodes
+     */
+    public BfsTree(int source, int[] hops, int[] parents) {
+        this.source=source;
+        this.hops=hops;
+        this.parents=parents;
+    }
+
+    public int getSource() {
+        return source;
+    }
+
+    /**
+     * Return the number of hops from the source to every node, indexed by id.
+     * Nodes that cannot be reached get {@link IGraph#UNREACHABLE}.
+     * 
+     * @return
+     */
+    public int[] getHops() {
+        return hops;
+    }
+
+    /**
+     * Return the id of the parent of every node in the BFS tree, indexed by id.
+     * The source and nodes that cannot be reached get -1.
+     * 
+     * @return
+     */
+    public int[] getParents() {
+        return parents;
+    }
+
+    /**
+     * Return true if the node with the given id can be reached from the source.
+     * 
+     * @param id
+     * @return
+     */
+    public boolean isReachable(int id) {
+        return hops[id]!=IGraph.UNREACHABLE;
+    }
+}
@@ -0,0 +1,43 @@
+package graph;
+
+/**
+ * Functor for following a depth-first search event by event.
+ * 
+ * An instance of this interface is passed to
+ * {@link IGraph#depthFirstSearch(String, DepthFirstVisitor)}. Every method
+ * does nothing by default, so implementations only override the events they
+ * care about. For every node reached, the search calls
+ * {@link #treeEdge(INode, INode)} (except for the start node), then
+ * {@link #discover(INode)}, then explores everything reachable from the node
+ * that has not been discovered yet, and finally calls {@link #finish(INode)}.
+ */
+public interface DepthFirstVisitor
+{
+    /**
+     * Called when the search reaches a node for the first time (pre-order).
+     * 
+     * @param node
+     */
+    public default void discover(INode node) {
+    }
+    
+    /**
+     * Called when the search is done with everything reachable from a node
+     * and backs out of it (post-order).
+     * 
+     * @param node
+     */
+    public default void finish(INode node) {
+    }
+    
+    /**
+     * Called when the search follows the edge from parent to a child it has
+     * not discovered yet, just before the child is discovered. The tree edges
+     * form the depth-first search tree.
+     * 
+     * @param parent
+     * @param child
+     */
+    public default void treeEdge(INode parent, INode child) {
+    }
+}
@@ -0,0 +1,41 @@
+package graph;
+
+/**
+ * The priority queue used by {@link IGraph#dijkstra(int, DijkstraEngine)}.
+ * All of them compute the same distances; they only differ in speed.
+ */
+public enum DijkstraEngine
+{
+    /**
+     * A binary heap of (cost, node) pairs with lazy deletion: every successful
+     * relaxation adds an entry, and stale entries are skipped when they come out.
+     */
+    LAZY_BINARY_HEAP,
+
+    /**
+     * An indexed 4-ary heap that holds every node at most once and lowers its
+     * key in place (decrease-key). Distances live in an int array.
+     */
+    INDEXED_DARY_HEAP,
+
+    /**
+     * Dial's algorithm: a circular array of maxWeight+1 buckets, one per
+     * distance. Needs no comparisons at all and runs in O(E + D) time, where
+     * D is the largest distance, so it is best when the weights are small.
+     */
+    DIAL_BUCKETS,
+
+    /**
+     * A radix heap with 33 buckets keyed on the highest bit in which a cost
+     * differs from the last cost that was removed. Every entry moves down at
+     * most 32 times, whatever the weights are.
+     */
+    RADIX_HEAP,
+
+    /**
+     * Pick an engine based on the edge weights of the graph: Dial's buckets
+     * when the largest weight is small, a radix heap when it is moderate, and
+     * the indexed heap otherwise.
+     */
+    AUTO
+}
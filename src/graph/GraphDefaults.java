@@ -0,0 +1,212 @@
+package graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+
+import graph.impl.Graph;
+
+/**
+ * Helpers behind the default methods of {@link IGraph}, so that graphs which
+ * only implement the name-based methods still get the id-based API.
+ *
+ * Such a graph has no ids of its own, so its nodes are numbered in the order
+ * of their names. The id-based algorithms run on a {@link Graph} copy whose
+ * ids are the same, which is slow but always correct; a graph that cares
+ * about speed implements the id-based methods itself.
+ */
+final class GraphDefaults
+{
+    private GraphDefaults() {
+        // only static methods
+    }
+
+    private static final Comparator<INode> BY_NAME=Comparator.comparing(INode::getName);
+
+    /**
+     * Return the nodes of the given graph sorted by name. The index of a
+     * node in the returned array is its id.
+     *
+     * @param g
+     * @return
+     */
+    static INode[] nodes(IGraph g) {
+        INode[] nodes=g.getAllNodes().toArray(new INode[0]);
+        Arrays.sort(nodes, BY_NAME);
+        return nodes;
+    }
+
+    /**
+     * Return the id of the node with the given name, or -1 if there is no
+     * such node.
+     *
+     * @param nodes the nodes of a graph, as returned by {@link #nodes(IGraph)}
+     * @param name
+     * @return
+     */
+    static int id(INode[] nodes, String name) {
+        int lo=0;
+        int hi=nodes.length-1;
+        while (lo<=hi) {
+            int mid=(lo+hi)>>>1;
+            int c=nodes[mid].getName().compareTo(name);
+            if (c==0) {
+                return mid;
+            } else if (c<0) {
+                lo=mid+1;
+            } else {
+                hi=mid-1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Return the ids of the neighbors of the node with the given id.
+     *
+     * @param nodes the nodes of a graph, as returned by {@link #nodes(IGraph)}
+     * @param id
+     * @return
+     * @throws IllegalArgumentException if an edge leads to a node that is
+     * not in the graph
+     */
+    static int[] neighborsOf(INode[] nodes, int id) {
+        return ids(nodes, nodes[id], nodes[id].getNeighbors());
+    }
+
+    /**
+     * Return the ids of the given neighbors of the given node.
+     *
+     * @param nodes the nodes of a graph, as returned by {@link #nodes(IGraph)}
+     * @param node
+     * @param neighbors
+     * @return
+     * @throws IllegalArgumentException if one of the neighbors is not in the graph
+     */
+    static int[] ids(INode[] nodes, INode node, Collection<INode> neighbors) {
+        int[] result=new int[neighbors.size()];
+        int i=0;
+        for (INode n : neighbors) {
+            result[i++]=requireId(nodes, node, n);
+        }
+        return result;
+    }
+
+    /**
+     * Copy the given graph, with the weights and labels of its edges, into a
+     * {@link Graph} in which every node has the same id as in the given graph.
+     *
+     * @param g
+     * @return
+     * @throws IllegalArgumentException if an edge leads to a node that is
+     * not in the graph
+     */
+    static Graph copy(IGraph g) {
+        return copy(nodes(g));
+    }
+
+    /**
+     * Copy the graph with the given nodes into a {@link Graph} in which every
+     * node has its index in the given array as id.
+     *
+     * @param nodes the nodes of a graph, as returned by {@link #nodes(IGraph)}
+     * @return
+     * @throws IllegalArgumentException if an edge leads to a node that is
+     * not in the graph
+     */
+    static Graph copy(INode[] nodes) {
+        Graph copy=new Graph();
+        for (INode n : nodes) {
+            copy.getOrCreateNode(n.getName());
+        }
+        for (int i=0; i<nodes.length; i++) {
+            INode src=copy.getNodeById(i);
+            for (INode n : nodes[i].getNeighbors()) {
+                INode dst=copy.getNodeById(requireId(nodes, nodes[i], n));
+                src.addDirectedEdgeToNode(dst, nodes[i].getWeight(n), nodes[i].getLabels(n));
+            }
+        }
+        return copy;
+    }
+
+    /**
+     * Return the given path through a copy made by {@link #copy(INode[])} as
+     * a path through the original nodes.
+     *
+     * @param nodes the nodes the copy was made from
+     * @param p a path through the copy, or null
+     * @return
+     */
+    static Path path(INode[] nodes, Path p) {
+        if (p==null) {
+            return null;
+        }
+        List<INode> result=new ArrayList<INode>(p.getNodes().size());
+        for (INode n : p.getNodes()) {
+            result.add(nodes[n.getId()]);
+        }
+        return new Path(p.getCost(), result);
+    }
+
+    /**
+     * Return a visitor for the nodes of a copy made by {@link #copy(INode[])}
+     * that passes the original nodes on to the given visitor.
+     *
+     * @param nodes the nodes the copy was made from
+     * @param v
+     * @return
+     */
+    static NodeVisitor visitor(INode[] nodes, NodeVisitor v) {
+        return n -> v.visit(nodes[n.getId()]);
+    }
+
+    /**
+     * Return a visitor for the nodes of a copy made by {@link #copy(INode[])}
+     * that passes the original nodes on to the given visitor.
+     *
+     * @param nodes the nodes the copy was made from
+     * @param v
+     * @return
+     */
+    static DepthFirstVisitor visitor(INode[] nodes, DepthFirstVisitor v) {
+        return new DepthFirstVisitor() {
+            @Override
+            public void discover(INode node) {
+                v.discover(nodes[node.getId()]);
+            }
+
+            @Override
+            public void finish(INode node) {
+                v.finish(nodes[node.getId()]);
+            }
+
+            @Override
+            public void treeEdge(INode parent, INode child) {
+                v.treeEdge(nodes[parent.getId()], nodes[child.getId()]);
+            }
+        };
+    }
+
+    /**
+     * Return a visitor for the nodes of a copy made by {@link #copy(INode[])}
+     * that passes the original nodes on to the given visitor.
+     *
+     * @param nodes the nodes the copy was made from
+     * @param v
+     * @return
+     */
+    static SearchVisitor visitor(INode[] nodes, SearchVisitor v) {
+        return n -> v.visit(nodes[n.getId()]);
+    }
+
+    private static int requireId(INode[] nodes, INode src, INode dst) {
+        int id=id(nodes, dst.getName());
+        if (id<0) {
+            throw new IllegalArgumentException("edge from "+src.getName()+" to "+dst.getName()+
+                    " leads to a node that is not in the graph");
+        }
+        return id;
+    }
+}
@@ -1,11 +1,21 @@
 package graph;
 
+import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Arrays;
 import java.util.HashSet;
-import java.util.Scanner;
 import java.util.Set;
 
+import graph.impl.CompactGraph;
+import graph.impl.DotReader;
+import graph.impl.EdgeListReader;
 import graph.impl.Graph;
 
 /**
@@ -16,6 +26,10 @@ import graph.impl.Graph;
  */
 public class GraphFactories
 {
+    // names that can't be written as DOT identifiers without quotes
+    private static final Set<String> DOT_KEYWORDS = new HashSet<String>(
+            Arrays.asList("node", "edge", "graph", "digraph", "subgraph", "strict"));
+    
     /**
      * Static factory method for creating a graph from a list of connections
      * between nodes. The given InputStream will contain lines in the following format:
@@ -29,6 +43,9 @@ public class GraphFactories
      * This would mean that there are edges from A to B, A to C, B to C, and C to D.
      * The graph is undirected and also unweighted, so the edge weights are not relevant.
      * 
+     * The input is tokenized by hand out of large byte buffers rather than
+     * with a Scanner, so large edge lists load quickly; see {@link EdgeListReader}.
+     * 
      * @param in
      * @return
      * @throws IOException
@@ -36,15 +53,26 @@ public class GraphFactories
     public static IGraph createUndirectedGraphFromAdjacencyList(InputStream in)
     throws IOException
     {
-        IGraph g = new Graph();
-        Scanner scan = new Scanner(in);
-        while (scan.hasNext()){
-            INode src = g.getOrCreateNode(scan.next());
-            INode dst = g.getOrCreateNode(scan.next());
-            src.addUndirectedEdgeToNode(dst, 1);
-        }
-        scan.close();
-        return g;
+        return EdgeListReader.readUndirected(in, false);
+    }
+    
+    /**
+     * Create an unweighted, undirected graph from the list of connections in
+     * the given file, in the same format as
+     * {@link #createUndirectedGraphFromAdjacencyList(InputStream)}.
+     * 
+     * The file is memory mapped and parsed in pieces on all cores, and the
+     * result is an immutable {@link CompactGraph}: it cannot get new nodes
+     * or edges. Every edge must be on a line of its own.
+     * 
+     * @param file
+     * @return
+     * @throws IOException
+     */
+    public static CompactGraph loadCompactUndirectedGraphFromAdjacencyList(Path file)
+    throws IOException
+    {
+        return EdgeListReader.loadCompactUndirected(file, false);
     }
     
     /**
@@ -67,18 +95,27 @@ public class GraphFactories
     public static IGraph createUndirectedWeightedGraphFromEdgeList(InputStream in)
     throws IOException
     {
-        IGraph g = new Graph();
-        Scanner scanner = new Scanner(in);
-        while (scanner.hasNext()){
-            String src=scanner.next();
-            String dst=scanner.next();
-            int cost=scanner.nextInt();
-            INode srcNode=g.getOrCreateNode(src);
-            INode dstNode=g.getOrCreateNode(dst);
-            srcNode.addUndirectedEdgeToNode(dstNode, cost);
-        }
-        scanner.close();
-        return g;
+        return EdgeListReader.readUndirected(in, true);
+    }
+    
+    /**
+     * Create a weighted, undirected graph from the list of edges and weights
+     * in the given file, in the same format as
+     * {@link #createUndirectedWeightedGraphFromEdgeList(InputStream)}.
+     * 
+     * The file is memory mapped and parsed in pieces on all cores, and the
+     * result is an immutable {@link CompactGraph}: it cannot get new nodes
+     * or edges. Every edge must be on a line of its own, and if an edge is
+     * listed more than once, the last weight wins.
+     * 
+     * @param file
+     * @return
+     * @throws IOException
+     */
+    public static CompactGraph loadCompactUndirectedWeightedGraphFromEdgeList(Path file)
+    throws IOException
+    {
+        return EdgeListReader.loadCompactUndirected(file, true);
     }
     
     /**
@@ -110,26 +147,7 @@ public class GraphFactories
      */
     public static String toUndirectedUnweightedDotFile(Graph g, String graphname)
     {
-        StringBuilder buf = new StringBuilder();
-        Set<String> set=new HashSet<String>();
-        buf.append("graph "+graphname+" {\n");
-        for (INode src : g.getAllNodes()) {
-            for (INode dst : src.getNeighbors()) {
-                String srcStr=src.getName();
-                String dstStr=dst.getName();
-                String key=srcStr+" "+dstStr;
-                if (srcStr.compareTo(dstStr)>0) {
-                    key=dstStr+" "+srcStr;
-                }
-                if (set.contains(key)){
-                    continue;
-                }
-                set.add(key);
-                buf.append(srcStr+" -- "+dstStr+"\n");
-            }
-        }
-        buf.append("}\n");
-        return buf.toString();
+        return dotString(g, graphname, false, false);
     }
     
     /**
@@ -158,27 +176,7 @@ public class GraphFactories
      */
     public static String toUndirectedWeightedDotFile(IGraph g, String graphname)
     {
-        StringBuilder buf = new StringBuilder();
-        Set<String> set=new HashSet<String>();
-        buf.append("graph "+graphname+" {\n");
-        for (INode src : g.getAllNodes()) {
-            for (INode dst : src.getNeighbors()) {
-                String srcStr=src.getName();
-                String dstStr=dst.getName();
-                String key=srcStr+" "+dstStr;
-                if (srcStr.compareTo(dstStr)>0){
-                    key=dstStr+" "+srcStr;
-                }
-                if (set.contains(key)) {
-                    continue;
-                }
-                set.add(key);
-                int cost=src.getWeight(dst);
-                buf.append(src.getName()+" -- "+dst.getName()+" [label="+cost+"];\n");
-            }
-        }
-        buf.append("}\n");
-        return buf.toString();
+        return dotString(g, graphname, false, true);
     }
     
     /**
@@ -207,27 +205,7 @@ public class GraphFactories
      */
     public static String toDirectedWeightedDotFile(IGraph g, String graphname)
     {
-        StringBuilder buf = new StringBuilder();
-        Set<String> set=new HashSet<String>();
-        buf.append("digraph "+graphname+" {\n");
-        for (INode src : g.getAllNodes()) {
-            for (INode dst : src.getNeighbors()) {
-                String srcStr=src.getName();
-                String dstStr=dst.getName();
-                String key=srcStr+" "+dstStr;
-                if (srcStr.compareTo(dstStr)>0){
-                    key=dstStr+" "+srcStr;
-                }
-                if (set.contains(key)) {
-                    continue;
-                }
-                set.add(key);
-                int cost=src.getWeight(dst);
-                buf.append(src.getName()+" -> "+dst.getName()+" [label="+cost+"];\n");
-            }
-        }
-        buf.append("}\n");
-        return buf.toString();
+        return dotString(g, graphname, true, true);
     }
     
     /**
@@ -254,67 +232,177 @@ public class GraphFactories
      * @param graphname the name of the graph
      */
     public static String toDirectedUnWeightedDotFile(IGraph g, String graphname)
+    {
+        return dotString(g, graphname, true, false);
+    }
+
+    
+    /**
+     * Write the given graph in DOT format to the given Writer, one edge at a
+     * time, in the formats of the four <code>to...DotFile</code> methods:
+     * directed graphs use <code>digraph</code> and <code>-&gt;</code>, and in
+     * weighted graphs every edge is labeled with its weight.
+     * 
+     * Nothing but the current line is held in memory, so this works for
+     * graphs whose DOT text would not fit in a String. In an undirected graph
+     * every edge is stored in both directions, and it is written once, from
+     * the node with the smaller id. In a directed graph every edge is written.
+     * Names that are not plain DOT identifiers are quoted.
+     * 
+     * @param g the graph
+     * @param graphname the name of the graph
+     * @param directed
+     * @param weighted
+     * @param out the writer, which is not flushed or closed
+     * @throws IOException
+     */
+    public static void writeDotFile(IGraph g, String graphname, boolean directed, boolean weighted, Writer out)
+    throws IOException
+    {
+        writeDot(g, graphname, directed, weighted, out);
+    }
+    
+    /**
+     * Write the given graph in DOT format to the given OutputStream as UTF-8,
+     * through a buffer, and flush it at the end.
+     * 
+     * @param g the graph
+     * @param graphname the name of the graph
+     * @param directed
+     * @param weighted
+     * @param out the stream, which is flushed but not closed
+     * @throws IOException
+     * @see #writeDotFile(IGraph, String, boolean, boolean, Writer)
+     */
+    public static void writeDotFile(IGraph g, String graphname, boolean directed, boolean weighted, OutputStream out)
+    throws IOException
+    {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 1 << 16);
+        writeDot(g, graphname, directed, weighted, writer);
+        writer.flush();
+    }
+    
+    private static String dotString(IGraph g, String graphname, boolean directed, boolean weighted)
     {
         StringBuilder buf = new StringBuilder();
-        Set<String> set=new HashSet<String>();
-        buf.append("digraph "+graphname+" {\n");
+        try {
+            writeDot(g, graphname, directed, weighted, buf);
+        } catch (IOException e) {
+            // a StringBuilder never throws
+            throw new UncheckedIOException(e);
+        }
+        return buf.toString();
+    }
+    
+    private static void writeDot(IGraph g, String graphname, boolean directed, boolean weighted, Appendable out)
+    throws IOException
+    {
+        out.append(directed ? "digraph " : "graph ");
+        appendId(out, graphname);
+        out.append(" {\n");
+        String arrow = directed ? " -> " : " -- ";
         for (INode src : g.getAllNodes()) {
+            int srcId = directed ? -1 : g.getNodeId(src.getName());
             for (INode dst : src.getNeighbors()) {
-                String srcStr=src.getName();
-                String dstStr=dst.getName();
-                String key=srcStr+" "+dstStr;
-                if (srcStr.compareTo(dstStr)>0){
-                    key=dstStr+" "+srcStr;
+                if (!directed && dst.hasEdge(src)) {
+                    // look dst up in g, since a neighbor may belong to another graph
+                    int dstId = g.getNodeId(dst.getName());
+                    if (dstId >= 0 && dstId < srcId && g.getNodeById(dstId) == dst) {
+                        // already written from dst
+                        continue;
+                    }
+                }
+                appendId(out, src.getName());
+                out.append(arrow);
+                appendId(out, dst.getName());
+                if (weighted) {
+                    out.append(" [label=").append(Integer.toString(src.getWeight(dst))).append(']');
                 }
-                if (set.contains(key)) {
-                    continue;
+                if (weighted || directed) {
+                    out.append(';');
                 }
-                set.add(key);
-                buf.append(src.getName()+" -> "+dst.getName()+";\n");
+                out.append('\n');
             }
         }
-        buf.append("}\n");
-        return buf.toString();
+        out.append("}\n");
+    }
+    
+    /**
+     * Append the given name as a DOT identifier, in double quotes unless it
+     * is a plain identifier or a number. In quotes, a quote, a backslash and a
+     * newline are escaped as <code>\"</code>, <code>\\</code> and
+     * <code>\n</code>, which is what {@link DotReader} reads back.
+     */
+    private static void appendId(Appendable out, String name) throws IOException {
+        if (isPlainId(name)) {
+            out.append(name);
+            return;
+        }
+        out.append('"');
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (c == '\n') {
+                out.append("\\n");
+                continue;
+            }
+            if (c == '"' || c == '\\') {
+                out.append('\\');
+            }
+            out.append(c);
+        }
+        out.append('"');
+    }
+    
+    private static boolean isPlainId(String name) {
+        if (name.isEmpty() || DOT_KEYWORDS.contains(name.toLowerCase())) {
+            return false;
+        }
+        char first = name.charAt(0);
+        if (first == '-' || first == '.' || Character.isDigit(first)) {
+            // a numeral: an optional minus sign, then digits with at most one dot
+            int digits = 0;
+            boolean dot = false;
+            for (int i = first == '-' ? 1 : 0; i < name.length(); i++) {
+                char c = name.charAt(i);
+                if (c == '.' && !dot) {
+                    dot = true;
+                } else if (c >= '0' && c <= '9') {
+                    digits++;
+                } else {
+                    return false;
+                }
+            }
+            return digits > 0;
+        }
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            boolean letter = (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_' || c >= 0x80;
+            if (!letter && !(i > 0 && c >= '0' && c <= '9')) {
+                return false;
+            }
+        }
+        return true;
     }
-
 
     /**
      * Read a graph from a dotfile.
      * 
-     * The graph is assumed to be weighted.
+     * The file is a <code>graph</code> with <code>--</code> edges, which
+     * become undirected edges, or a <code>digraph</code> with <code>-&gt;</code>
+     * edges, which become directed edges. The weight of an edge is its
+     * <code>label</code> if that is an int, so the files written by the
+     * <code>to...DotFile</code> methods read back as the same graph, or else
+     * its <code>weight</code> attribute if that is an int, or else 1. See {@link DotReader} for the
+     * parts of the DOT language that are supported.
      * 
      * @param in
      * @return
-     * @throws IOException
+     * @throws IOException if the input cannot be read or is not valid DOT
      */
     public static IGraph readFromDotFile(InputStream in)
     throws IOException
     {
-        IGraph g = new Graph();
-        Scanner scan=new Scanner(in);
-        while (scan.hasNextLine()) {
-            String line=scan.nextLine();
-            line=line.replaceAll("--", "");
-            line=line.replaceAll("\\];", "");
-            line=line.replaceAll("\\[label=", "");
-            if (line.equals("") || 
-                    line.contains("{") ||
-                    line.contains("}"))
-            {
-                continue;
-            }
-            System.out.println(line);
-            Scanner lscan=new Scanner(line);
-            String srcname=lscan.next();
-            String dstname=lscan.next();
-            int weight=lscan.nextInt();
-            lscan.close();
-            INode src=g.getOrCreateNode(srcname);
-            INode dst=g.getOrCreateNode(dstname);
-            src.addUndirectedEdgeToNode(dst, weight);
-        }
-        scan.close();
-        return g;
+        return DotReader.read(in);
     }
     
 }
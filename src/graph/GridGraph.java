@@ -1,7 +1,5 @@
 package graph;
 
-import java.util.Stack;
-
 import graph.impl.Graph;
 
 /**
@@ -57,19 +55,11 @@ public class GridGraph
         System.out.printf("graph gr {\n");
         
         
-        g.depthFirstSearch("r0c0", new NodeVisitor() {
-            Stack<INode> nodes = new Stack<INode>();
+        g.depthFirstSearch("r0c0", new DepthFirstVisitor() {
             @Override
-            public void visit(INode node) {
-                // Go through the stack of nodes we've already seen,
-                // and connect to it.
-                for (INode n : nodes){
-                    if (node.hasEdge(n)){
-                        System.out.printf("%s -- %s;\n", n.getName(), node.getName());
-                        break;
-                    }
-                }
-                nodes.push(node);
+            public void treeEdge(INode parent, INode child) {
+                // the edges of the DFS tree are the passages of the maze
+                System.out.printf("%s -- %s;\n", parent.getName(), child.getName());
             }
         });
         
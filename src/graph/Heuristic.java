@@ -0,0 +1,27 @@
+package graph;
+
+/**
+ * An estimate of the cost of getting from one node to another, used to guide
+ * {@link IGraph#aStar(String, String, Heuristic)}.
+ * 
+ * For A* to find a cheapest path, the estimate must be <b>admissible</b>: it
+ * may never be more than the real cost of the cheapest path. If it is also
+ * <b>consistent</b> (the estimate for a node is never more than the weight of an
+ * edge out of it plus the estimate for the other end of that edge), A* never
+ * has to look at a node twice.
+ * 
+ * See {@link Heuristics} for heuristics based on node coordinates.
+ */
+public interface Heuristic
+{
+    /**
+     * Return a lower bound on the cost of the cheapest path from the node with
+     * the given id to the node with the given target id. The bound must not be
+     * negative.
+     * 
+     * @param node
+     * @param target
+     * @return
+     */
+    int estimate(int node, int target);
+}
@@ -0,0 +1,153 @@
+package graph;
+
+import java.awt.Point;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Static factory methods for {@link Heuristic}s that estimate the cost between
+ * two nodes from their coordinates.
+ * 
+ * The coordinates of every node are looked up once, when the heuristic is
+ * created, and stored in arrays indexed by node id, so A* never has to look up
+ * a node by name. Coordinates are usually not measured in the same units as
+ * edge weights (pixels vs. transport costs, for example), so unless a scale
+ * is given, the heuristics calibrate themselves: the scale is the smallest
+ * ratio of edge weight to coordinate distance over all edges of the graph. With
+ * that scale no edge is ever "shorter" than the estimate says, which makes the
+ * heuristic admissible and consistent.
+ */
+public class Heuristics
+{
+    private static final Pattern GRID_NAME=Pattern.compile("r(\\d+)c(\\d+)");
+
+    /**
+     * A heuristic that returns 0 for every node, which turns A* into Dijkstra.
+     * 
+     * @return
+     */
+    public static Heuristic zero() {
+        return new Heuristic() {
+            @Override
+            public int estimate(int node, int target) {
+                return 0;
+            }
+        };
+    }
+
+    /**
+     * Straight-line (Euclidean) distance between the positions of two nodes,
+     * such as the positions of the Scotland Yard locations read by
+     * SYSolver.readPositionPoints. The scale is calibrated from the edges of the graph.
+     * 
+     * @param g
+     * @param positions map from node name to position; must contain every node
+     * @return
+     * @throws IllegalArgumentException if a node has no position
+     */
+    public static Heuristic euclidean(IGraph g, Map<String,Point> positions) {
+        double[][] xy=coordinates(g, positions);
+        return euclidean(xy[0], xy[1], calibrate(g, xy[0], xy[1], false));
+    }
+
+    /**
+     * Straight-line distance between the positions of two nodes, multiplied by
+     * the given cost per unit of distance. The caller is responsible for making
+     * sure that the result never overestimates.
+     * 
+     * @param g
+     * @param positions map from node name to position; must contain every node
+     * @param costPerUnit
+     * @return
+     * @throws IllegalArgumentException if a node has no position
+     */
+    public static Heuristic euclidean(IGraph g, Map<String,Point> positions, double costPerUnit) {
+        double[][] xy=coordinates(g, positions);
+        return euclidean(xy[0], xy[1], costPerUnit);
+    }
+
+    /**
+     * Manhattan distance between the rows and columns of two nodes in a graph
+     * made by {@link GridGraph#makeGridGraph(int, int)}, whose node names look
+     * like r2c1 (row 2, column 1). The scale is calibrated from the edges of
+     * the graph, so for a plain grid with weights of 1 the estimate is exactly
+     * the number of rows plus the number of columns between the nodes.
+     * 
+     * @param g
+     * @return
+     * @throws IllegalArgumentException if a node name is not of the form r2c1
+     */
+    public static Heuristic gridManhattan(IGraph g) {
+        int n=g.getNodeCount();
+        final double[] rows=new double[n];
+        final double[] cols=new double[n];
+        for (int i=0; i<n; i++) {
+            String name=g.getNodeById(i).getName();
+            Matcher m=GRID_NAME.matcher(name);
+            if (!m.matches()) {
+                throw new IllegalArgumentException(name+" is not a grid node name like r2c1");
+            }
+            rows[i]=Integer.parseInt(m.group(1));
+            cols[i]=Integer.parseInt(m.group(2));
+        }
+        final double scale=calibrate(g, rows, cols, true);
+        return new Heuristic() {
+            @Override
+            public int estimate(int node, int target) {
+                return (int)(scale*(Math.abs(rows[node]-rows[target])+Math.abs(cols[node]-cols[target])));
+            }
+        };
+    }
+
+    private static Heuristic euclidean(final double[] x, final double[] y, final double scale) {
+        return new Heuristic() {
+            @Override
+            public int estimate(int node, int target) {
+                double dx=x[node]-x[target];
+                double dy=y[node]-y[target];
+                return (int)(scale*Math.sqrt(dx*dx+dy*dy));
+            }
+        };
+    }
+
+    private static double[][] coordinates(IGraph g, Map<String,Point> positions) {
+        int n=g.getNodeCount();
+        double[] x=new double[n];
+        double[] y=new double[n];
+        for (int i=0; i<n; i++) {
+            String name=g.getNodeById(i).getName();
+            Point p=positions.get(name);
+            if (p==null) {
+                throw new IllegalArgumentException("no position for node "+name);
+            }
+            x[i]=p.getX();
+            y[i]=p.getY();
+        }
+        return new double[][] {x, y};
+    }
+
+    /**
+     * Return the smallest ratio of weight to distance over every edge whose
+     * endpoints are at different coordinates.
+     */
+    private static double calibrate(IGraph g, double[] x, double[] y, boolean manhattan) {
+        double scale=Double.POSITIVE_INFINITY;
+        for (int u=0; u<g.getNodeCount(); u++) {
+            for (int v : g.neighborsOf(u)) {
+                double dx=Math.abs(x[u]-x[v]);
+                double dy=Math.abs(y[u]-y[v]);
+                double d=manhattan ? dx+dy : Math.sqrt(dx*dx+dy*dy);
+                if (d>0) {
+                    scale=Math.min(scale, Math.max(g.weight(u, v), 0)/d);
+                }
+            }
+        }
+        // no edge moves anywhere, so the coordinates tell us nothing
+        return scale==Double.POSITIVE_INFINITY ? 0 : scale;
+    }
+
+    private Heuristics() {
+        // only static methods
+    }
+}
@@ -1,10 +1,24 @@
 package graph;
 
+import java.util.AbstractMap;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Map;
+import java.util.stream.Stream;
 
 public interface IGraph
 {
+    /**
+     * Distance reported by the id-based searches for nodes that cannot be
+     * reached from the source.
+     */
+    int UNREACHABLE = Integer.MAX_VALUE;
+    
+    /**
+     * Label mask that lets every edge through, whatever its labels, including
+     * edges that have no labels at all.
+     */
+    int ANY_EDGE = -1;
 	
     /**
      * Return the {@link Node} with the given name.
@@ -63,6 +77,95 @@ public interface IGraph
      */
     void depthFirstSearch(String startNode, NodeVisitor v);
     
+    /**
+     * Perform a depth-first search on the graph, starting at the node with the
+     * given name, and report every discover, finish and tree edge event to the
+     * given {@link DepthFirstVisitor}. Neighbors are explored in order of their ids.
+     * 
+     * @param startNode
+     * @param v
+     */
+    default void depthFirstSearch(String startNode, DepthFirstVisitor v) {
+        INode[] nodes=GraphDefaults.nodes(this);
+        GraphDefaults.copy(nodes).depthFirstSearch(startNode, GraphDefaults.visitor(nodes, v));
+    }
+    
+    /**
+     * Perform a breadth-first search on the graph, starting at the node with
+     * the given name, visiting nodes in the same order as
+     * {@link #breadthFirstSearch(String, NodeVisitor)}. After each visit, the
+     * {@link VisitResult} returned by the visitor can keep the search from
+     * following the node's edges, or stop it altogether.
+     * 
+     * @param startNode
+     * @param v
+     * @return true if the visitor stopped the search, false if it ran to the end
+     */
+    default boolean searchBreadthFirst(String startNode, SearchVisitor v) {
+        INode[] nodes=GraphDefaults.nodes(this);
+        return GraphDefaults.copy(nodes).searchBreadthFirst(startNode, GraphDefaults.visitor(nodes, v));
+    }
+    
+    /**
+     * Perform a depth-first search on the graph, starting at the node with
+     * the given name, visiting nodes in the same order as
+     * {@link #depthFirstSearch(String, NodeVisitor)}. After each visit, the
+     * {@link VisitResult} returned by the visitor can keep the search from
+     * following the node's edges, or stop it altogether.
+     * 
+     * @param startNode
+     * @param v
+     * @return true if the visitor stopped the search, false if it ran to the end
+     */
+    default boolean searchDepthFirst(String startNode, SearchVisitor v) {
+        INode[] nodes=GraphDefaults.nodes(this);
+        return GraphDefaults.copy(nodes).searchDepthFirst(startNode, GraphDefaults.visitor(nodes, v));
+    }
+    
+    /**
+     * Return the nodes reachable from the node with the given name, in the
+     * order {@link #breadthFirstSearch(String, NodeVisitor)} visits them. The
+     * search runs lazily, one node per element pulled from the stream, and
+     * sees the graph as it was when the stream was created.
+     * 
+     * @param startNode
+     * @return
+     */
+    default Stream<INode> bfsStream(String startNode) {
+        INode[] nodes=GraphDefaults.nodes(this);
+        return GraphDefaults.copy(nodes).bfsStream(startNode).map(n -> nodes[n.getId()]);
+    }
+    
+    /**
+     * Return the nodes reachable from the node with the given name, in the
+     * order {@link #depthFirstSearch(String, NodeVisitor)} visits them. The
+     * search runs lazily, one node per element pulled from the stream, and
+     * sees the graph as it was when the stream was created.
+     * 
+     * @param startNode
+     * @return
+     */
+    default Stream<INode> dfsStream(String startNode) {
+        INode[] nodes=GraphDefaults.nodes(this);
+        return GraphDefaults.copy(nodes).dfsStream(startNode).map(n -> nodes[n.getId()]);
+    }
+    
+    /**
+     * Return the nodes reachable from the node with the given name, each with
+     * the cost of the cheapest path to it, in the order Dijkstra's algorithm
+     * settles them, which is by increasing cost. Each element pulled from the
+     * stream settles one more node, so a stream that is cut short never
+     * looks at the rest of the graph. Edge weights must not be negative.
+     * 
+     * @param startNode
+     * @return
+     */
+    default Stream<Map.Entry<INode,Integer>> dijkstraStream(String startNode) {
+        INode[] nodes=GraphDefaults.nodes(this);
+        return GraphDefaults.copy(nodes).dijkstraStream(startNode)
+                .map(e -> new AbstractMap.SimpleImmutableEntry<>(nodes[e.getKey().getId()], e.getValue()));
+    }
+    
     /**
      * Perform Dijkstra's algorithm for computing the cost of the shortest path
      * to every node in the graph starting at the node with the given name.
@@ -87,4 +190,311 @@ public interface IGraph
      * @return
      */
     IGraph primJarnik();
+    
+    /**
+     * Return the number of nodes in the graph. Every node has a dense id
+     * between 0 and getNodeCount()-1, assigned in the order the nodes were created.
+     * 
+     * The default methods of the id-based API number the nodes in the order
+     * of their names, and run the algorithms on a copy of the graph, so a
+     * graph only has to implement them itself to make them fast.
+     * 
+     * @return
+     */
+    default int getNodeCount() {
+        return getAllNodes().size();
+    }
+    
+    /**
+     * Return the node with the given id.
+     * 
+     * @param id
+     * @return
+     * @throws IndexOutOfBoundsException if there is no node with the given id
+     */
+    default INode getNodeById(int id) {
+        return GraphDefaults.nodes(this)[id];
+    }
+    
+    /**
+     * Return the id of the node with the given name, or -1 if the graph does not
+     * contain a node with the given name.
+     * 
+     * @param name
+     * @return
+     */
+    default int getNodeId(String name) {
+        return GraphDefaults.id(GraphDefaults.nodes(this), name);
+    }
+    
+    /**
+     * Return the ids of the nodes that the node with the given id has an edge to.
+     * The returned array is a copy; changing it does not change the graph.
+     * 
+     * @param id
+     * @return
+     * @throws IllegalArgumentException if an edge leads to a node that is not
+     * in the graph
+     */
+    default int[] neighborsOf(int id) {
+        return GraphDefaults.neighborsOf(GraphDefaults.nodes(this), id);
+    }
+    
+    /**
+     * Return the ids of the nodes that the node with the given id has an edge
+     * to, where the edge has at least one of the label bits in the given mask,
+     * or all of them if the mask is {@link #ANY_EDGE}.
+     * 
+     * @param id
+     * @param labelMask
+     * @return
+     */
+    default int[] neighborsOf(int id, int labelMask) {
+        INode[] nodes=GraphDefaults.nodes(this);
+        return GraphDefaults.ids(nodes, nodes[id], nodes[id].getNeighbors(labelMask));
+    }
+    
+    /**
+     * Return the weight of the edge between the nodes with the given ids.
+     * 
+     * @param src
+     * @param dst
+     * @return
+     * @throws IllegalStateException if there is no such edge
+     */
+    default int weight(int src, int dst) {
+        INode[] nodes=GraphDefaults.nodes(this);
+        return nodes[src].getWeight(nodes[dst]);
+    }
+    
+    /**
+     * Return the label bits of the edge between the nodes with the given ids,
+     * see {@link INode#getLabels(INode)}.
+     * 
+     * @param src
+     * @param dst
+     * @return
+     * @throws IllegalStateException if there is no such edge
+     */
+    default int labels(int src, int dst) {
+        INode[] nodes=GraphDefaults.nodes(this);
+        return nodes[src].getLabels(nodes[dst]);
+    }
+    
+    /**
+     * Perform a breadth-first search from the node with the given id and return
+     * the number of edges (hops) from the source to every node, indexed by node id.
+     * Nodes that cannot be reached get {@link #UNREACHABLE}.
+     * 
+     * @param source
+     * @return
+     */
+    default int[] bfs(int source) {
+        return GraphDefaults.copy(this).bfs(source);
+    }
+    
+    /**
+     * Perform a breadth-first search from each of the nodes with the given ids
+     * and return the number of hops from every source to every node: row i is
+     * what {@link #bfs(int)} returns for sources[i]. The searches run side by
+     * side, so each edge is looked at once per level for all of them, which is
+     * much faster than calling {@link #bfs(int)} in a loop.
+     * 
+     * @param sources
+     * @return
+     */
+    default int[][] multiSourceBfs(int... sources) {
+        return GraphDefaults.copy(this).multiSourceBfs(sources);
+    }
+    
+    /**
+     * Starting from the set of nodes with the ids in start, take the given
+     * number of steps, where a step goes from every node in the set to all of
+     * its neighbors, and return the set of nodes after each step: element i of
+     * the result holds the ids of the nodes that can be reached in exactly
+     * i+1 steps. Nodes can show up again in later steps.
+     * 
+     * If step masks are given there must be one per step, and step i only
+     * follows edges whose labels have a bit in common with stepMasks[i], or
+     * every edge if the mask is {@link #ANY_EDGE}.
+     * 
+     * @param start
+     * @param steps
+     * @param stepMasks
+     * @return
+     */
+    default BitSet[] stepFrontiers(BitSet start, int steps, int... stepMasks) {
+        return GraphDefaults.copy(this).stepFrontiers(start, steps, stepMasks);
+    }
+    
+    /**
+     * Perform a level-synchronous breadth-first search from the node with the
+     * given id, expanding each level's frontier in parallel on the common
+     * {@link java.util.concurrent.ForkJoinPool}. Hop counts are the same as
+     * {@link #bfs(int)}; when a node can be reached from several nodes of the
+     * previous level, which one becomes its parent depends on thread timing
+     * unless deterministicOrder is set, in which case it is the one with the
+     * smallest id.
+     * 
+     * The visitor, which may be null, is called once for every node reached.
+     * Without deterministicOrder it is called from the worker threads, so it
+     * must be thread-safe, and the order of the calls is not defined beyond
+     * the source coming first. With deterministicOrder it is called on the
+     * calling thread, level by level and in increasing id order within each level.
+     * 
+     * @param source
+     * @param v
+     * @param deterministicOrder
+     * @return
+     */
+    default BfsTree parallelBfs(int source, NodeVisitor v, boolean deterministicOrder) {
+        INode[] nodes=GraphDefaults.nodes(this);
+        return GraphDefaults.copy(nodes).parallelBfs(source,
+                v==null ? null : GraphDefaults.visitor(nodes, v), deterministicOrder);
+    }
+    
+    /**
+     * Perform Dijkstra's algorithm from the node with the given id and return
+     * the cost of the shortest path to every node, indexed by node id.
+     * Nodes that cannot be reached get {@link #UNREACHABLE}.
+     * 
+     * @param source
+     * @return
+     */
+    default int[] dijkstra(int source) {
+        return GraphDefaults.copy(this).dijkstra(source);
+    }
+    
+    /**
+     * Perform Dijkstra's algorithm from the node with the given id, using the
+     * given kind of priority queue, and return the cost of the shortest path to
+     * every node indexed by node id. Nodes that cannot be reached get
+     * {@link #UNREACHABLE}. Edge weights must not be negative.
+     * 
+     * @param source
+     * @param engine
+     * @return
+     */
+    default int[] dijkstra(int source, DijkstraEngine engine) {
+        return GraphDefaults.copy(this).dijkstra(source, engine);
+    }
+    
+    /**
+     * Find a cheapest path between the nodes with the given names. Unlike
+     * {@link #dijkstra(String)}, the search stops as soon as the cost of reaching
+     * the destination is known, so it usually touches only part of the graph.
+     * 
+     * @param src
+     * @param dst
+     * @return the path, or null if dst cannot be reached from src
+     * @throws IllegalArgumentException if there is no node with one of the given names
+     */
+    default Path shortestPath(String src, String dst) {
+        INode[] nodes=GraphDefaults.nodes(this);
+        return GraphDefaults.path(nodes, GraphDefaults.copy(nodes).shortestPath(src, dst));
+    }
+    
+    /**
+     * Find a cheapest path between the nodes with the given ids, stopping as soon
+     * as the destination is reached.
+     * 
+     * @param src
+     * @param dst
+     * @return the ids of the nodes along the path from src to dst, or null if
+     * dst cannot be reached from src
+     */
+    default int[] shortestPath(int src, int dst) {
+        return GraphDefaults.copy(this).shortestPath(src, dst);
+    }
+    
+    /**
+     * Find a cheapest path between the nodes with the given names by searching
+     * forward from src and backward from dst at the same time (following edges
+     * in reverse, so this also works for directed graphs) until the two searches
+     * meet. If every edge has the same weight, such as in a grid graph, both
+     * searches are breadth-first.
+     * 
+     * @param src
+     * @param dst
+     * @return the path, or null if dst cannot be reached from src
+     * @throws IllegalArgumentException if there is no node with one of the given names
+     */
+    default Path bidirectionalShortestPath(String src, String dst) {
+        INode[] nodes=GraphDefaults.nodes(this);
+        return GraphDefaults.path(nodes, GraphDefaults.copy(nodes).bidirectionalShortestPath(src, dst));
+    }
+    
+    /**
+     * Bidirectional search between the nodes with the given ids.
+     * 
+     * @param src
+     * @param dst
+     * @return the ids of the nodes along a cheapest path from src to dst, or null
+     * if dst cannot be reached from src
+     */
+    default int[] bidirectionalShortestPath(int src, int dst) {
+        return GraphDefaults.copy(this).bidirectionalShortestPath(src, dst);
+    }
+    
+    /**
+     * Find a cheapest path between the nodes with the given names using A*
+     * search, which uses the given heuristic to explore nodes that look closer
+     * to the destination first. See {@link Heuristics} for heuristics based on
+     * map or grid coordinates.
+     * 
+     * @param src
+     * @param dst
+     * @param h an admissible heuristic
+     * @return the path, or null if dst cannot be reached from src
+     * @throws IllegalArgumentException if there is no node with one of the given names
+     */
+    default Path aStar(String src, String dst, Heuristic h) {
+        INode[] nodes=GraphDefaults.nodes(this);
+        return GraphDefaults.path(nodes, GraphDefaults.copy(nodes).aStar(src, dst, h));
+    }
+    
+    /**
+     * A* search between the nodes with the given ids.
+     * 
+     * @param src
+     * @param dst
+     * @param h an admissible heuristic
+     * @return the ids of the nodes along a cheapest path from src to dst, or null
+     * if dst cannot be reached from src
+     */
+    default int[] aStar(int src, int dst, Heuristic h) {
+        return GraphDefaults.copy(this).aStar(src, dst, h);
+    }
+    
+    /**
+     * Find a cheapest path between the nodes with the given names whose
+     * sequence of edge labels is accepted by the given automaton. For example,
+     * {@link LabelAutomaton#anyOf(int)} only allows some kinds of edges, and
+     * {@link LabelAutomaton#sequence(int...)} fixes the kind of every edge in
+     * turn. A path may go through the same node more than once if the
+     * automaton requires it. Edge weights must not be negative.
+     * 
+     * @param src
+     * @param dst
+     * @param a
+     * @return the path, or null if no path from src to dst matches
+     * @throws IllegalArgumentException if there is no node with one of the given names
+     */
+    default Path constrainedShortestPath(String src, String dst, LabelAutomaton a) {
+        INode[] nodes=GraphDefaults.nodes(this);
+        return GraphDefaults.path(nodes, GraphDefaults.copy(nodes).constrainedShortestPath(src, dst, a));
+    }
+    
+    /**
+     * Label-constrained shortest path between the nodes with the given ids.
+     * 
+     * @param src
+     * @param dst
+     * @param a
+     * @return the ids of the nodes along a cheapest matching path from src to
+     * dst, or null if there is none
+     */
+    default int[] constrainedShortestPath(int src, int dst, LabelAutomaton a) {
+        return GraphDefaults.copy(this).constrainedShortestPath(src, dst, a);
+    }
 }
@@ -1,17 +1,96 @@
 package graph;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 
 public interface INode
 {
+    /**
+     * Number of label bits an edge can carry. Labels are stored in a byte per edge.
+     */
+    int LABEL_BITS = 8;
+    
     String getName();
     
+    /**
+     * Return the dense id that the graph which created this node assigned to it,
+     * or -1 if the node does not belong to a graph.
+     * 
+     * @return
+     */
+    default int getId() {
+        return -1;
+    }
+    
     Collection<INode> getNeighbors();
     
+    /**
+     * Return the neighbors of this node whose edge has at least one of the
+     * label bits in the given mask, or all of the neighbors if the mask is
+     * {@link IGraph#ANY_EDGE}.
+     * 
+     * @param labelMask
+     * @return
+     */
+    default Collection<INode> getNeighbors(int labelMask) {
+        if (labelMask==IGraph.ANY_EDGE) {
+            return getNeighbors();
+        }
+        List<INode> result=new ArrayList<INode>();
+        for (INode n : getNeighbors()) {
+            if ((getLabels(n) & labelMask)!=0) {
+                result.add(n);
+            }
+        }
+        return result;
+    }
+    
     void addDirectedEdgeToNode(INode neighbor, int weight);
     
     void addUndirectedEdgeToNode(INode neighbor, int weight);
     
+    /**
+     * Add a directed edge to the given node using the given weight, and add
+     * the given bits to the labels of the edge. Labels are a bitmask of up to
+     * {@link #LABEL_BITS} bits, such as the kinds of transportation that link
+     * two places. Adding the same edge again with other labels keeps the old
+     * labels as well, while the weight is replaced.
+     * 
+     * A node that does not implement this method itself can only add edges
+     * without labels.
+     * 
+     * @param neighbor
+     * @param weight
+     * @param labels
+     * @throws IllegalArgumentException if labels has bits beyond the lowest {@link #LABEL_BITS}
+     * @throws UnsupportedOperationException if labels is not 0 and the node
+     * cannot store labels
+     */
+    default void addDirectedEdgeToNode(INode neighbor, int weight, int labels) {
+        if (labels!=0) {
+            throw new UnsupportedOperationException(getName()+" cannot store edge labels");
+        }
+        addDirectedEdgeToNode(neighbor, weight);
+    }
+    
+    /**
+     * Add an undirected edge to the given node using the given weight, and
+     * add the given bits to the labels of the edge in both directions.
+     * 
+     * @param neighbor
+     * @param weight
+     * @param labels
+     * @throws UnsupportedOperationException if labels is not 0 and the node
+     * cannot store labels
+     */
+    default void addUndirectedEdgeToNode(INode neighbor, int weight, int labels) {
+        if (labels!=0) {
+            throw new UnsupportedOperationException(getName()+" cannot store edge labels");
+        }
+        addUndirectedEdgeToNode(neighbor, weight);
+    }
+    
     void removeDirectedEdgeToNode(INode neighbor);
     
     void removeUndirectedEdgeToNode(INode neightbor);
@@ -19,4 +98,18 @@ public interface INode
     boolean hasEdge(INode node);
     
     int getWeight(INode node);
+    
+    /**
+     * Return the label bits of the edge to the given node, which are 0 if the
+     * edge was added without labels, or if this node cannot store labels.
+     * 
+     * @param node
+     * @return
+     * @throws IllegalStateException if there is no edge to the given node
+     */
+    default int getLabels(INode node) {
+        // fails the same way if there is no edge
+        getWeight(node);
+        return 0;
+    }
 }
@@ -0,0 +1,141 @@
+package graph;
+
+import java.util.Arrays;
+
+/**
+ * A deterministic finite automaton over edge labels, used to constrain the
+ * sequence of labels along a path in
+ * {@link IGraph#constrainedShortestPath(String, String, LabelAutomaton)}.
+ * 
+ * The automaton has a fixed number of states, numbered from 0, and starts in
+ * state 0. Following an edge reads one of the label bits of the edge (see
+ * {@link INode#getLabels(INode)}) and moves to the state given by the
+ * transition for that bit. If there is no transition for any of the label bits
+ * of an edge, the edge cannot be used from the current state. An edge without
+ * any labels reads the symbol {@link #UNLABELED} instead, which only the mask
+ * {@link IGraph#ANY_EDGE} has a transition for. A path matches if the
+ * automaton is in an accepting state at its end.
+ * 
+ * For example, "any number of taxi or bus rides" is
+ * <code>LabelAutomaton.anyOf(TAXI | BUS)</code>, and "underground, then
+ * exactly two taxi rides" is
+ * <code>LabelAutomaton.sequence(UNDERGROUND, TAXI, TAXI)</code>.
+ */
+public final class LabelAutomaton
+{
+    /**
+     * The symbol read by an edge that has no labels, after the label bits 0 to
+     * {@link INode#LABEL_BITS}-1.
+     */
+    public static final int UNLABELED=INode.LABEL_BITS;
+    // symbols per state: every label bit, and UNLABELED
+    private static final int SYMBOLS=INode.LABEL_BITS+1;
+
+    private final int states;
+    // transitions[state*SYMBOLS+symbol] is the next state, or -1 if there is none
+    private final int[] transitions;
+    private final boolean[] accepting;
+
+    /**
+     * Create an automaton with the given number of states, no transitions and
+     * no accepting states.
+     * 
+     * @param states
+     */
+    public LabelAutomaton(int states) {
+        if (states<1) {
+            throw new IllegalArgumentException("an automaton needs at least one state");
+        }
+        this.states=states;
+        transitions=new int[states*SYMBOLS];
+        Arrays.fill(transitions, -1);
+        accepting=new boolean[states];
+    }
+
+    /**
+     * An automaton that accepts every path, including the empty one, that
+     * only uses edges with at least one of the given label bits, or every path
+     * at all for {@link IGraph#ANY_EDGE}.
+     * 
+     * @param labelMask
+     * @return
+     */
+    public static LabelAutomaton anyOf(int labelMask) {
+        LabelAutomaton a=new LabelAutomaton(1);
+        a.addTransition(0, labelMask, 0);
+        a.setAccepting(0);
+        return a;
+    }
+
+    /**
+     * An automaton that accepts the paths with exactly one edge per given mask,
+     * where the i-th edge has at least one of the label bits of the i-th mask,
+     * or is any edge if the mask is {@link IGraph#ANY_EDGE}.
+     * 
+     * @param stepMasks
+     * @return
+     */
+    public static LabelAutomaton sequence(int... stepMasks) {
+        LabelAutomaton a=new LabelAutomaton(stepMasks.length+1);
+        for (int i=0; i<stepMasks.length; i++) {
+            a.addTransition(i, stepMasks[i], i+1);
+        }
+        a.setAccepting(stepMasks.length);
+        return a;
+    }
+
+    /**
+     * Add transitions from one state to another for every label bit in the mask.
+     * A transition for a bit replaces any earlier transition for that bit out
+     * of the same state. {@link IGraph#ANY_EDGE} adds transitions for every
+     * bit and for {@link #UNLABELED}, so it lets edges without labels through.
+     * 
+     * @param from
+     * @param labelMask
+     * @param to
+     */
+    public void addTransition(int from, int labelMask, int to) {
+        checkState(from);
+        checkState(to);
+        for (int bit=0; bit<INode.LABEL_BITS; bit++) {
+            if ((labelMask & (1<<bit))!=0) {
+                transitions[from*SYMBOLS+bit]=to;
+            }
+        }
+        if (labelMask==IGraph.ANY_EDGE) {
+            transitions[from*SYMBOLS+UNLABELED]=to;
+        }
+    }
+
+    public void setAccepting(int state) {
+        checkState(state);
+        accepting[state]=true;
+    }
+
+    public boolean isAccepting(int state) {
+        return accepting[state];
+    }
+
+    public int getStateCount() {
+        return states;
+    }
+
+    /**
+     * Return the state reached from the given state by reading the given label
+     * bit (0 to {@link INode#LABEL_BITS}-1) or {@link #UNLABELED}, or -1 if
+     * there is no transition.
+     * 
+     * @param state
+     * @param bit
+     * @return
+     */
+    public int next(int state, int bit) {
+        return transitions[state*SYMBOLS+bit];
+    }
+
+    private void checkState(int state) {
+        if (state<0 || state>=states) {
+            throw new IllegalArgumentException("no state "+state+" in an automaton with "+states+" states");
+        }
+    }
+}
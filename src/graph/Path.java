@@ -0,0 +1,99 @@
+package graph;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A path through a graph: the nodes along the path in order, from the start
+ * node to the end node, and the total cost of the edges between them.
+ */
+public final class Path
+{
+    private final int cost;
+    private final List<INode> nodes;
+
+    /**
+     * Create a path with the given total cost that visits the given nodes in order.
+     *
+     * @param cost
+     * @param nodes
+     */
+    public Path(int cost, List<INode> nodes) {
+        if (nodes.isEmpty()) {
+            throw new IllegalArgumentException("a path needs at least one node");
+        }
+        this.cost=cost;
+        this.nodes=Collections.unmodifiableList(new ArrayList<INode>(nodes));
+    }
+
+    /**
+     * Create the path through the nodes of the given graph with the given ids,
+     * adding up the weights of the edges between consecutive nodes.
+     *
+     * @param g
+     * @param ids
+     * @return
+     * @throws IllegalStateException if two consecutive nodes are not connected
+     */
+    public static Path fromIds(IGraph g, int[] ids) {
+        List<INode> nodes=new ArrayList<INode>(ids.length);
+        int cost=0;
+        for (int i=0; i<ids.length; i++) {
+            nodes.add(g.getNodeById(ids[i]));
+            if (i>0) {
+                cost+=g.weight(ids[i-1], ids[i]);
+            }
+        }
+        return new Path(cost, nodes);
+    }
+
+    /**
+     * Return the sum of the weights of the edges along the path.
+     *
+     * @return
+     */
+    public int getCost() {
+        return cost;
+    }
+
+    /**
+     * Return the nodes along the path, starting with the start node and ending
+     * with the end node. The list cannot be changed.
+     *
+     * @return
+     */
+    public List<INode> getNodes() {
+        return nodes;
+    }
+
+    public INode getStart() {
+        return nodes.get(0);
+    }
+
+    public INode getEnd() {
+        return nodes.get(nodes.size()-1);
+    }
+
+    /**
+     * Return the number of edges along the path.
+     *
+     * @return
+     */
+    public int getLength() {
+        return nodes.size()-1;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder buf=new StringBuilder();
+        for (INode n : nodes) {
+            if (buf.length()>0) {
+                buf.append(" -> ");
+            }
+            buf.append(n.getName());
+        }
+        buf.append(" (cost ").append(cost).append(")");
+        return buf.toString();
+    }
+}
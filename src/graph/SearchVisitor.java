@@ -0,0 +1,21 @@
+package graph;
+
+/**
+ * Functor for visiting a node that can steer the search it is passed to.
+ * 
+ * An instance of this interface is passed to
+ * {@link IGraph#searchBreadthFirst(String, SearchVisitor)} or
+ * {@link IGraph#searchDepthFirst(String, SearchVisitor)}, and the visit()
+ * method will be called on each node. Its return value decides whether the
+ * search goes on, goes on without the node's neighbors, or stops.
+ */
+public interface SearchVisitor
+{
+    /**
+     * Method for visiting a node.
+     * 
+     * @param node
+     * @return what the search should do next
+     */
+    public VisitResult visit(INode node);
+}
@@ -0,0 +1,173 @@
+package graph;
+
+import java.awt.Point;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A 2-d tree over named points, such as the locations returned by
+ * {@link graph.impl.SYSolver#readPositionPoints(String)}, for finding the
+ * point nearest to a position or all points within some distance of it
+ * without looking at every point.
+ * 
+ * The tree is stored implicitly in parallel arrays: the points of a subtree
+ * occupy a range of the arrays, the point that splits them is at the middle
+ * of the range, and the points before and after it are its two subtrees.
+ * Levels alternate between splitting on x and on y. The index is immutable.
+ */
+public final class SpatialIndex
+{
+    private final String[] names;
+    private final int[] xs;
+    private final int[] ys;
+
+    /**
+     * Build an index over the given points.
+     * 
+     * @param points
+     */
+    public SpatialIndex(Map<String,Point> points) {
+        int n=points.size();
+        names=new String[n];
+        xs=new int[n];
+        ys=new int[n];
+        Integer[] order=new Integer[n];
+        String[] allNames=new String[n];
+        int[] allX=new int[n];
+        int[] allY=new int[n];
+        int i=0;
+        for (Map.Entry<String,Point> e : points.entrySet()) {
+            allNames[i]=e.getKey();
+            allX[i]=e.getValue().x;
+            allY[i]=e.getValue().y;
+            order[i]=i;
+            i++;
+        }
+        build(order, 0, n, true, allX, allY);
+        for (int k=0; k<n; k++) {
+            names[k]=allNames[order[k]];
+            xs[k]=allX[order[k]];
+            ys[k]=allY[order[k]];
+        }
+    }
+
+    /**
+     * Arrange order[lo..hi) so the median on the current axis is in the middle,
+     * and recursively do the same for both halves on the other axis.
+     */
+    private static void build(Integer[] order, int lo, int hi, boolean splitX, int[] x, int[] y) {
+        if (hi-lo<=1) {
+            return;
+        }
+        int[] key=splitX ? x : y;
+        Arrays.sort(order, lo, hi, (a, b) -> Integer.compare(key[a], key[b]));
+        int mid=(lo+hi)>>>1;
+        build(order, lo, mid, !splitX, x, y);
+        build(order, mid+1, hi, !splitX, x, y);
+    }
+
+    public int size() {
+        return names.length;
+    }
+
+    /**
+     * Return the name of the point nearest to the given position, or null if
+     * the index is empty. Ties are broken arbitrarily.
+     * 
+     * @param p
+     * @return
+     */
+    public String nearest(Point p) {
+        return nearest(p.x, p.y);
+    }
+
+    /**
+     * Return the name of the point nearest to (x, y), or null if the index is empty.
+     * 
+     * @param x
+     * @param y
+     * @return
+     */
+    public String nearest(int x, int y) {
+        if (names.length==0) {
+            return null;
+        }
+        // best[0] is the index of the nearest point so far, best[1] its squared distance
+        long[] best={-1, Long.MAX_VALUE};
+        nearest(0, names.length, true, x, y, best);
+        return names[(int)best[0]];
+    }
+
+    private void nearest(int lo, int hi, boolean splitX, int x, int y, long[] best) {
+        if (lo>=hi) {
+            return;
+        }
+        int mid=(lo+hi)>>>1;
+        long d=distanceSquared(mid, x, y);
+        if (d<best[1]) {
+            best[0]=mid;
+            best[1]=d;
+        }
+        long diff=splitX ? (long)x-xs[mid] : (long)y-ys[mid];
+        // look on the side of the split the position is on first, and only
+        // look on the other side if it could have something closer
+        if (diff<0) {
+            nearest(lo, mid, !splitX, x, y, best);
+            if (diff*diff<best[1]) {
+                nearest(mid+1, hi, !splitX, x, y, best);
+            }
+        } else {
+            nearest(mid+1, hi, !splitX, x, y, best);
+            if (diff*diff<best[1]) {
+                nearest(lo, mid, !splitX, x, y, best);
+            }
+        }
+    }
+
+    /**
+     * Return the names of all points within the given distance of the given
+     * position (inclusive), nearest first.
+     * 
+     * @param p
+     * @param radius
+     * @return
+     */
+    public List<String> withinRadius(Point p, double radius) {
+        List<Integer> found=new ArrayList<Integer>();
+        double r2=radius*radius;
+        withinRadius(0, names.length, true, p.x, p.y, radius, r2, found);
+        Collections.sort(found, (a, b) -> Long.compare(distanceSquared(a, p.x, p.y), distanceSquared(b, p.x, p.y)));
+        List<String> result=new ArrayList<String>(found.size());
+        for (int i : found) {
+            result.add(names[i]);
+        }
+        return result;
+    }
+
+    private void withinRadius(int lo, int hi, boolean splitX, int x, int y, double radius, double r2, List<Integer> found) {
+        if (lo>=hi) {
+            return;
+        }
+        int mid=(lo+hi)>>>1;
+        if (distanceSquared(mid, x, y)<=r2) {
+            found.add(mid);
+        }
+        long diff=splitX ? (long)x-xs[mid] : (long)y-ys[mid];
+        // points before mid are at most at the split on this axis, points after it at least
+        if (diff<=radius) {
+            withinRadius(lo, mid, !splitX, x, y, radius, r2, found);
+        }
+        if (diff>=-radius) {
+            withinRadius(mid+1, hi, !splitX, x, y, radius, r2, found);
+        }
+    }
+
+    private long distanceSquared(int i, int x, int y) {
+        long dx=(long)xs[i]-x;
+        long dy=(long)ys[i]-y;
+        return dx*dx+dy*dy;
+    }
+}
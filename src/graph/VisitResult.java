@@ -0,0 +1,24 @@
+package graph;
+
+/**
+ * What a {@link SearchVisitor} tells a breadth-first or depth-first search
+ * to do after it visits a node.
+ */
+public enum VisitResult
+{
+    /**
+     * Keep going as usual.
+     */
+    CONTINUE,
+    
+    /**
+     * Keep going, but do not follow the edges out of the node just visited.
+     * Its neighbors can still be reached through other nodes.
+     */
+    SKIP_CHILDREN,
+    
+    /**
+     * Stop the search right away.
+     */
+    STOP
+}
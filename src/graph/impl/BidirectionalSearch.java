@@ -0,0 +1,219 @@
+package graph.impl;
+
+import java.util.Arrays;
+
+import graph.IGraph;
+
+/**
+ * Single-pair shortest paths that search forward from the source and
+ * backward from the target at the same time, over the edges of the
+ * {@link CompactGraph#reverse() reverse graph}, and stop when the two
+ * searches meet. Each search only has to get about half way, which on large
+ * graphs means exploring far fewer nodes than a one-sided search.
+ *
+ * Every method returns the ids of the nodes on a cheapest path from source to
+ * target, or null if there is no path.
+ */
+final class BidirectionalSearch
+{
+    /**
+     * Pick bidirectional BFS if every edge has the same weight, so that fewest
+     * hops also means cheapest, and bidirectional Dijkstra otherwise.
+     */
+    static int[] shortestPath(CompactGraph g, int source, int target) {
+        if (g.minWeight()==g.maxWeight() && g.minWeight()>=0) {
+            return bfs(g, source, target);
+        }
+        return dijkstra(g, source, target);
+    }
+
+    /**
+     * Bidirectional Dijkstra.
+     *
+     * Each step settles the node with the smaller key of the two heaps. mu is the
+     * cost of the cheapest complete path seen so far: whenever an edge is
+     * relaxed into a node the other search has reached, that gives a path.
+     * Once the two smallest keys add up to at least mu, no undiscovered path can
+     * be cheaper, because such a path would have to run through a node that
+     * neither search has settled, costing at least topF on one side plus topB
+     * on the other.
+     */
+    static int[] dijkstra(CompactGraph g, int source, int target) {
+        if (source==target) {
+            return new int[] {source};
+        }
+        CompactGraph r=g.reverse();
+        int n=g.size();
+        int[] distF=unreachable(n);
+        int[] distB=unreachable(n);
+        int[] predF=new int[n];
+        int[] predB=new int[n];
+        IndexedDaryHeap heapF=new IndexedDaryHeap(n);
+        IndexedDaryHeap heapB=new IndexedDaryHeap(n);
+        distF[source]=0;
+        predF[source]=-1;
+        heapF.offer(source, 0);
+        distB[target]=0;
+        predB[target]=-1;
+        heapB.offer(target, 0);
+        long mu=Long.MAX_VALUE;
+        // the path found so far goes source ... meetFrom -> meetTo ... target
+        int meetFrom=-1;
+        int meetTo=-1;
+        while (!heapF.isEmpty() && !heapB.isEmpty()) {
+            long topF=heapF.key(heapF.peek());
+            long topB=heapB.key(heapB.peek());
+            if (topF+topB>=mu) {
+                break;
+            }
+            if (topF<=topB) {
+                int u=heapF.poll();
+                for (int e=g.begin(u), end=g.end(u); e<end; e++) {
+                    int v=g.target(e);
+                    int cost=distF[u]+g.weight(e);
+                    if (cost<distF[v]) {
+                        distF[v]=cost;
+                        predF[v]=u;
+                        heapF.offer(v, cost);
+                    }
+                    if (distB[v]!=IGraph.UNREACHABLE && (long)cost+distB[v]<mu) {
+                        mu=(long)cost+distB[v];
+                        meetFrom=u;
+                        meetTo=v;
+                    }
+                }
+            } else {
+                int u=heapB.poll();
+                for (int e=r.begin(u), end=r.end(u); e<end; e++) {
+                    int v=r.target(e);
+                    int cost=distB[u]+r.weight(e);
+                    if (cost<distB[v]) {
+                        distB[v]=cost;
+                        predB[v]=u;
+                        heapB.offer(v, cost);
+                    }
+                    if (distF[v]!=IGraph.UNREACHABLE && (long)cost+distF[v]<mu) {
+                        mu=(long)cost+distF[v];
+                        meetFrom=v;
+                        meetTo=u;
+                    }
+                }
+            }
+        }
+        if (meetFrom<0) {
+            return null;
+        }
+        return join(predF, meetFrom, predB, meetTo);
+    }
+
+    /**
+     * Bidirectional breadth-first search for graphs where every edge costs the
+     * same. Each round expands one whole level of whichever side has the
+     * smaller frontier. When a round finds nodes the other side has already
+     * reached, the best of those meetings is a shortest path, and the search
+     * stops at the end of that round.
+     */
+    static int[] bfs(CompactGraph g, int source, int target) {
+        if (source==target) {
+            return new int[] {source};
+        }
+        CompactGraph r=g.reverse();
+        int n=g.size();
+        int[] hopsF=unreachable(n);
+        int[] hopsB=unreachable(n);
+        int[] predF=new int[n];
+        int[] predB=new int[n];
+        // each side keeps all of its discovered nodes in one array, in BFS order;
+        // the current frontier is the range [start, end)
+        int[] queueF=new int[n];
+        int[] queueB=new int[n];
+        int startF=0;
+        int endF=1;
+        int startB=0;
+        int endB=1;
+        queueF[0]=source;
+        hopsF[source]=0;
+        predF[source]=-1;
+        queueB[0]=target;
+        hopsB[target]=0;
+        predB[target]=-1;
+        int best=Integer.MAX_VALUE;
+        int meetFrom=-1;
+        int meetTo=-1;
+        while (startF<endF && startB<endB) {
+            if (endF-startF<=endB-startB) {
+                int tail=endF;
+                for (int i=startF; i<endF; i++) {
+                    int u=queueF[i];
+                    for (int e=g.begin(u), end=g.end(u); e<end; e++) {
+                        int v=g.target(e);
+                        if (hopsB[v]!=IGraph.UNREACHABLE && hopsF[u]+1+hopsB[v]<best) {
+                            best=hopsF[u]+1+hopsB[v];
+                            meetFrom=u;
+                            meetTo=v;
+                        }
+                        if (hopsF[v]==IGraph.UNREACHABLE) {
+                            hopsF[v]=hopsF[u]+1;
+                            predF[v]=u;
+                            queueF[tail++]=v;
+                        }
+                    }
+                }
+                startF=endF;
+                endF=tail;
+            } else {
+                int tail=endB;
+                for (int i=startB; i<endB; i++) {
+                    int u=queueB[i];
+                    for (int e=r.begin(u), end=r.end(u); e<end; e++) {
+                        int v=r.target(e);
+                        if (hopsF[v]!=IGraph.UNREACHABLE && hopsB[u]+1+hopsF[v]<best) {
+                            best=hopsB[u]+1+hopsF[v];
+                            meetFrom=v;
+                            meetTo=u;
+                        }
+                        if (hopsB[v]==IGraph.UNREACHABLE) {
+                            hopsB[v]=hopsB[u]+1;
+                            predB[v]=u;
+                            queueB[tail++]=v;
+                        }
+                    }
+                }
+                startB=endB;
+                endB=tail;
+            }
+            if (meetFrom>=0) {
+                return join(predF, meetFrom, predB, meetTo);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Glue the forward path from the source to meetFrom onto the backward path
+     * from meetTo to the target.
+     */
+    private static int[] join(int[] predF, int meetFrom, int[] predB, int meetTo) {
+        int[] front=ShortestPaths.walkBack(predF, meetFrom);
+        int backLength=0;
+        for (int u=meetTo; u>=0; u=predB[u]) {
+            backLength++;
+        }
+        int[] path=Arrays.copyOf(front, front.length+backLength);
+        int i=front.length;
+        for (int u=meetTo; u>=0; u=predB[u]) {
+            path[i++]=u;
+        }
+        return path;
+    }
+
+    private static int[] unreachable(int n) {
+        int[] dist=new int[n];
+        Arrays.fill(dist, IGraph.UNREACHABLE);
+        return dist;
+    }
+
+    private BidirectionalSearch() {
+        // only static methods
+    }
+}
@@ -0,0 +1,255 @@
+package graph.impl;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Splits the bytes of a channel into whitespace-separated tokens, without
+ * regular expressions and without creating a String for every token.
+ *
+ * The input is read into one large byte array. A token is a run of bytes
+ * above the space character, so tabs, carriage returns and newlines all
+ * separate tokens, and the bytes of names are never decoded unless somebody
+ * asks for them as a String. Numbers are parsed straight out of the array.
+ * When a token runs off the end of the array, its start is moved to the front
+ * before reading more, and the array only grows if a single token is longer
+ * than the whole array.
+ *
+ * A tokenizer can also scan a {@link ByteBuffer}, such as a memory mapped
+ * file, in place: its bytes are read where they are, with absolute gets, and
+ * never copied into an array.
+ */
+final class ByteTokenizer
+{
+    static final int BUFFER_SIZE=1<<16;
+
+    private final ReadableByteChannel in;
+    private byte[] buf;
+    // the input when scanning a buffer in place, and null otherwise
+    private final ByteBuffer data;
+    private int pos;
+    private int limit;
+    private boolean eof;
+    private int line=1;
+    // the last token read is [start..end) of buf, or of data
+    private int start;
+    private int end;
+
+    ByteTokenizer(InputStream in) {
+        this(Channels.newChannel(in));
+    }
+
+    ByteTokenizer(ReadableByteChannel in) {
+        this(in, BUFFER_SIZE);
+    }
+
+    ByteTokenizer(ReadableByteChannel in, int bufferSize) {
+        this.in=in;
+        this.buf=new byte[Math.max(bufferSize, 16)];
+        this.data=null;
+    }
+
+    /**
+     * Scan the bytes of the given buffer from its position to its limit in
+     * place. The position of the buffer is not changed.
+     *
+     * @param data
+     */
+    ByteTokenizer(ByteBuffer data) {
+        this.in=null;
+        this.data=data;
+        pos=data.position();
+        limit=data.limit();
+        // everything there is to read is already in place
+        eof=true;
+    }
+
+    private byte at(int i) {
+        return data==null ? buf[i] : data.get(i);
+    }
+
+    /**
+     * Move the bytes from keep to the limit to the front of the buffer, then
+     * read more after them. Returns false at the end of the input.
+     */
+    private boolean fill(int keep) throws IOException {
+        if (eof) {
+            return false;
+        }
+        int kept=limit-keep;
+        if (keep==0 && kept==buf.length) {
+            buf=Arrays.copyOf(buf, buf.length*2);
+        } else if (keep>0) {
+            System.arraycopy(buf, keep, buf, 0, kept);
+        }
+        pos-=keep;
+        limit=kept;
+        ByteBuffer target=ByteBuffer.wrap(buf, limit, buf.length-limit);
+        int read;
+        do {
+            read=in.read(target);
+        } while (read==0);
+        if (read<0) {
+            eof=true;
+            return false;
+        }
+        limit+=read;
+        return true;
+    }
+
+    /**
+     * Skip whitespace and return true if there is another token.
+     *
+     * @return
+     * @throws IOException
+     */
+    boolean hasNext() throws IOException {
+        while (true) {
+            if (pos==limit && !fill(pos)) {
+                return false;
+            }
+            byte b=at(pos);
+            if (b>' ' || b<0) {
+                return true;
+            }
+            if (b=='\n') {
+                line++;
+            }
+            pos++;
+        }
+    }
+
+    /**
+     * Read the next token into [start..end).
+     */
+    private void token() throws IOException {
+        if (!hasNext()) {
+            throw new EOFException("line "+line+": unexpected end of input");
+        }
+        start=pos;
+        while (true) {
+            if (pos==limit) {
+                if (eof) {
+                    break;
+                }
+                int keep=start;
+                boolean more=fill(keep);
+                start-=keep;
+                if (!more) {
+                    break;
+                }
+            }
+            byte b=at(pos);
+            if (b<=' ' && b>=0) {
+                break;
+            }
+            pos++;
+        }
+        end=pos;
+    }
+
+    /**
+     * Return the next token as a String.
+     *
+     * @return
+     * @throws IOException
+     */
+    String next() throws IOException {
+        token();
+        return text();
+    }
+
+    private String text() {
+        if (data==null) {
+            return new String(buf, start, end-start, StandardCharsets.UTF_8);
+        }
+        byte[] b=new byte[end-start];
+        for (int i=0; i<b.length; i++) {
+            b[i]=data.get(start+i);
+        }
+        return new String(b, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Return the first byte of the next token, which must be the whole token.
+     *
+     * @return
+     * @throws IOException if the token is longer than one byte
+     */
+    byte nextByte() throws IOException {
+        token();
+        if (end-start!=1) {
+            throw mismatch("a single character");
+        }
+        return at(start);
+    }
+
+    /**
+     * Parse the next token as a decimal int, with an optional sign.
+     *
+     * @return
+     * @throws IOException if the token is not an int
+     */
+    int nextInt() throws IOException {
+        token();
+        int i=start;
+        boolean negative=false;
+        byte sign=at(i);
+        if (sign=='-' || sign=='+') {
+            negative=sign=='-';
+            i++;
+        }
+        if (i==end) {
+            throw mismatch("an integer");
+        }
+        // accumulate negatively, so that Integer.MIN_VALUE fits
+        int min=negative ? Integer.MIN_VALUE : -Integer.MAX_VALUE;
+        int value=0;
+        for (; i<end; i++) {
+            int digit=at(i)-'0';
+            if (digit<0 || digit>9 || value<(min+digit)/10) {
+                throw mismatch("an integer");
+            }
+            value=value*10-digit;
+        }
+        return negative ? value : -value;
+    }
+
+    /**
+     * Look the next token up in the given dictionary, adding it if it is new,
+     * and return its id.
+     *
+     * @param names
+     * @return
+     * @throws IOException
+     */
+    int nextName(NameDictionary names) throws IOException {
+        token();
+        return data==null ? names.intern(buf, start, end-start) : names.intern(data, start, end-start);
+    }
+
+    /**
+     * Return the line the tokenizer is on, counting from 1.
+     *
+     * @return
+     */
+    int line() {
+        return line;
+    }
+
+    private IOException mismatch(String expected) {
+        return new IOException("line "+line+": expected "+expected+" but found "+text());
+    }
+
+    void close() throws IOException {
+        if (in!=null) {
+            in.close();
+        }
+    }
+}
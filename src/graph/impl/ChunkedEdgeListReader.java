@@ -0,0 +1,316 @@
+package graph.impl;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.function.IntConsumer;
+
+/**
+ * Loads an undirected edge list file into a {@link CompactGraph} using every
+ * core of a {@link ForkJoinPool}.
+ *
+ * The file is cut into chunks at line boundaries and every chunk is memory
+ * mapped and parsed in place by its own task, with its own
+ * {@link ByteTokenizer} and {@link NameDictionary}, into arrays of endpoints
+ * and weights. The chunk dictionaries are then merged, in file order, into
+ * one dictionary that numbers the nodes in order of first appearance, just
+ * like reading the file from the start would.
+ *
+ * The CSR arrays are built directly in two passes over the edges: one counts
+ * the degree of every node, and after a prefix sum over the counts the other
+ * scatters every edge into the rows of both of its endpoints. Both passes run
+ * in parallel with atomic counters. Every entry remembers the position of its
+ * edge in the file, so each row can then be sorted and cut down to one entry
+ * per neighbor, keeping the last one, whatever order the tasks ran in.
+ */
+final class ChunkedEdgeListReader
+{
+    // chunks are at least this long, so small files are parsed in one piece
+    private static final long MIN_CHUNK_BYTES=1<<20;
+    // and at most this long, so every chunk fits in one mapping
+    private static final long MAX_CHUNK_BYTES=1<<30;
+    // rows are handed out to tasks in runs of at least this many
+    private static final int MIN_ROWS=1024;
+
+    /**
+     * The edges of one chunk, with endpoints numbered by the chunk's own
+     * dictionary until {@link ChunkedEdgeListReader#build} renumbers them.
+     */
+    private static final class Chunk
+    {
+        final NameDictionary names=new NameDictionary();
+        int[] src=new int[64];
+        int[] dst=new int[64];
+        int[] weights=new int[64];
+        int count;
+
+        void add(int s, int d, int w) {
+            if (count==src.length) {
+                src=Arrays.copyOf(src, count*2);
+                dst=Arrays.copyOf(dst, count*2);
+                weights=Arrays.copyOf(weights, count*2);
+            }
+            src[count]=s;
+            dst[count]=d;
+            weights[count]=w;
+            count++;
+        }
+    }
+
+    /**
+     * Read the given file, which has one edge per line: two node names and,
+     * if weighted is true, an int weight. Every edge is undirected; if the
+     * same two nodes appear on several lines, the last line wins.
+     *
+     * @param file
+     * @param weighted
+     * @param pool
+     * @return
+     * @throws IOException
+     */
+    static CompactGraph read(Path file, boolean weighted, ForkJoinPool pool) throws IOException {
+        return read(file, weighted, pool, MIN_CHUNK_BYTES);
+    }
+
+    static CompactGraph read(Path file, boolean weighted, ForkJoinPool pool, long minChunkBytes) throws IOException {
+        try (FileChannel channel=FileChannel.open(file, StandardOpenOption.READ)) {
+            long[] bounds=split(channel, pool.getParallelism()*4, minChunkBytes);
+            int chunks=bounds.length-1;
+            Chunk[] parsed=new Chunk[chunks];
+            IOException[] errors=new IOException[chunks];
+            forRange(pool, 0, chunks, 1, c -> {
+                try {
+                    parsed[c]=parse(channel, bounds[c], bounds[c+1], weighted);
+                } catch (IOException e) {
+                    errors[c]=new IOException("in the chunk starting at byte "+bounds[c]+
+                            ": "+e.getMessage(), e);
+                }
+            });
+            for (IOException e : errors) {
+                if (e!=null) {
+                    throw e;
+                }
+            }
+            return build(parsed, weighted, pool);
+        }
+    }
+
+    /**
+     * Return the offsets at which the chunks start, followed by the length of
+     * the file. Every chunk but the first starts right after a newline.
+     */
+    private static long[] split(FileChannel channel, int chunks, long minChunkBytes) throws IOException {
+        long size=channel.size();
+        long target=Math.min(MAX_CHUNK_BYTES, Math.max(minChunkBytes, (size+chunks-1)/chunks));
+        long[] bounds=new long[2];
+        int count=1;
+        long last=0;
+        while (true) {
+            long next=last+target>=size ? size : lineStart(channel, last+target, size);
+            // a long last line can stretch a chunk, but it still has to fit in one mapping
+            if (next-last>Integer.MAX_VALUE) {
+                throw new IOException("line starting at byte "+last+" is too long");
+            }
+            if (count==bounds.length) {
+                bounds=Arrays.copyOf(bounds, count*2);
+            }
+            bounds[count++]=next;
+            if (next==size) {
+                return Arrays.copyOf(bounds, count);
+            }
+            last=next;
+        }
+    }
+
+    /**
+     * Return the offset of the first line that starts at or after the given
+     * offset, or the size of the file if there is none.
+     */
+    private static long lineStart(FileChannel channel, long offset, long size) throws IOException {
+        ByteBuffer window=ByteBuffer.allocate(4096);
+        long pos=offset-1;
+        while (pos<size) {
+            window.clear();
+            int read=channel.read(window, pos);
+            if (read<0) {
+                break;
+            }
+            for (int i=0; i<read; i++) {
+                if (window.get(i)=='\n') {
+                    return pos+i+1;
+                }
+            }
+            pos+=read;
+        }
+        return size;
+    }
+
+    private static Chunk parse(FileChannel channel, long start, long end, boolean weighted) throws IOException {
+        Chunk chunk=new Chunk();
+        MappedByteBuffer mapped=channel.map(FileChannel.MapMode.READ_ONLY, start, end-start);
+        ByteTokenizer tokens=new ByteTokenizer(mapped);
+        while (tokens.hasNext()) {
+            int src=tokens.nextName(chunk.names);
+            int dst=tokens.nextName(chunk.names);
+            chunk.add(src, dst, weighted ? tokens.nextInt() : 1);
+        }
+        return chunk;
+    }
+
+    private static CompactGraph build(Chunk[] chunks, boolean weighted, ForkJoinPool pool) throws IOException {
+        // merge the dictionaries in file order, and renumber the endpoints
+        NameDictionary dictionary=new NameDictionary();
+        int[][] remap=new int[chunks.length][];
+        int[] firstEdge=new int[chunks.length+1];
+        long edges=0;
+        for (int c=0; c<chunks.length; c++) {
+            Chunk chunk=chunks[c];
+            remap[c]=new int[chunk.names.size()];
+            for (int i=0; i<remap[c].length; i++) {
+                remap[c][i]=dictionary.intern(chunk.names, i);
+            }
+            edges+=chunk.count;
+            if (edges*2>Integer.MAX_VALUE-8) {
+                throw new IOException("too many edges for a CompactGraph");
+            }
+            firstEdge[c+1]=(int)edges;
+        }
+        int n=dictionary.size();
+        int[] weights=weighted ? new int[(int)edges] : null;
+        AtomicIntegerArray degree=new AtomicIntegerArray(n);
+        forRange(pool, 0, chunks.length, 1, c -> {
+            Chunk chunk=chunks[c];
+            int[] map=remap[c];
+            for (int i=0; i<chunk.count; i++) {
+                int s=map[chunk.src[i]];
+                int d=map[chunk.dst[i]];
+                chunk.src[i]=s;
+                chunk.dst[i]=d;
+                degree.incrementAndGet(s);
+                if (s!=d) {
+                    degree.incrementAndGet(d);
+                }
+            }
+            if (weighted) {
+                System.arraycopy(chunk.weights, 0, weights, firstEdge[c], chunk.count);
+            }
+            chunk.weights=null;
+        });
+
+        // scatter (target, edge number) pairs into the rows of both endpoints
+        int[] rowStart=new int[n+1];
+        for (int u=0; u<n; u++) {
+            rowStart[u+1]=rowStart[u]+degree.get(u);
+        }
+        AtomicIntegerArray cursor=degree;
+        for (int u=0; u<n; u++) {
+            cursor.set(u, rowStart[u]);
+        }
+        long[] entries=new long[rowStart[n]];
+        forRange(pool, 0, chunks.length, 1, c -> {
+            Chunk chunk=chunks[c];
+            for (int i=0; i<chunk.count; i++) {
+                long edge=firstEdge[c]+i;
+                int s=chunk.src[i];
+                int d=chunk.dst[i];
+                entries[cursor.getAndIncrement(s)]=((long)d<<32) | edge;
+                if (s!=d) {
+                    entries[cursor.getAndIncrement(d)]=((long)s<<32) | edge;
+                }
+            }
+            chunks[c]=null;
+        });
+
+        // sort every row and keep the last entry for each neighbor
+        int[] kept=new int[n];
+        forRange(pool, 0, n, rowGrain(n, pool), u -> {
+            int from=rowStart[u];
+            int to=rowStart[u+1];
+            Arrays.sort(entries, from, to);
+            int k=from;
+            for (int i=from; i<to; i++) {
+                if (i+1<to && entries[i+1]>>>32==entries[i]>>>32) {
+                    continue;
+                }
+                entries[k++]=entries[i];
+            }
+            kept[u]=k-from;
+        });
+        int[] offsets=new int[n+1];
+        for (int u=0; u<n; u++) {
+            offsets[u+1]=offsets[u]+kept[u];
+        }
+        int[] targets=new int[offsets[n]];
+        int[] edgeWeights=new int[offsets[n]];
+        forRange(pool, 0, n, rowGrain(n, pool), u -> {
+            int from=rowStart[u];
+            for (int e=offsets[u]; e<offsets[u+1]; e++) {
+                long entry=entries[from++];
+                targets[e]=(int)(entry>>>32);
+                edgeWeights[e]=weighted ? weights[(int)entry] : 1;
+            }
+        });
+
+        return new CompactGraph(dictionary, offsets, targets, edgeWeights, null);
+    }
+
+    private static int rowGrain(int n, ForkJoinPool pool) {
+        return Math.max(MIN_ROWS, n/(pool.getParallelism()*8));
+    }
+
+    /**
+     * Call body with every int from lo (inclusive) to hi (exclusive) on the
+     * given pool, in runs of at least grain.
+     */
+    private static void forRange(ForkJoinPool pool, int lo, int hi, int grain, IntConsumer body) {
+        if (hi-lo<=grain) {
+            for (int i=lo; i<hi; i++) {
+                body.accept(i);
+            }
+        } else {
+            pool.invoke(new RangeTask(lo, hi, grain, body));
+        }
+    }
+
+    /**
+     * Splits a range in half until it is no longer than the grain.
+     */
+    @SuppressWarnings("serial")
+    private static final class RangeTask extends RecursiveAction
+    {
+        private final int lo;
+        private final int hi;
+        private final int grain;
+        private final IntConsumer body;
+
+        RangeTask(int lo, int hi, int grain, IntConsumer body) {
+            this.lo=lo;
+            this.hi=hi;
+            this.grain=grain;
+            this.body=body;
+        }
+
+        @Override
+        protected void compute() {
+            if (hi-lo<=grain) {
+                for (int i=lo; i<hi; i++) {
+                    body.accept(i);
+                }
+                return;
+            }
+            int mid=(lo+hi)>>>1;
+            invokeAll(new RangeTask(lo, mid, grain, body), new RangeTask(mid, hi, grain, body));
+        }
+    }
+
+    private ChunkedEdgeListReader() {
+        // only static methods
+    }
+}
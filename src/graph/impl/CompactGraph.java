@@ -0,0 +1,984 @@
+package graph.impl;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntConsumer;
+import java.util.function.IntFunction;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import graph.BfsTree;
+import graph.DepthFirstVisitor;
+import graph.DijkstraEngine;
+import graph.Heuristic;
+import graph.IGraph;
+import graph.INode;
+import graph.LabelAutomaton;
+import graph.NodeVisitor;
+import graph.Path;
+import graph.SearchVisitor;
+import graph.VisitResult;
+
+/**
+ * An immutable snapshot of a graph stored in compressed sparse row (CSR) form.
+ *
+ * Every node gets a dense integer id from 0 to n-1. The outgoing edges of node
+ * <code>u</code> are stored at positions <code>offsets[u]</code> (inclusive) through
+ * <code>offsets[u+1]</code> (exclusive) of the <code>targets</code> and
+ * <code>weights</code> arrays, sorted by target id, and their label bits are
+ * in a byte column <code>labels</code> alongside. So the whole graph is three
+ * int arrays and a byte array plus a dictionary of names, instead of one
+ * HashMap per node, and the algorithms walk those arrays directly.
+ *
+ * The arrays are held as {@link IntBuffer}s and a {@link ByteBuffer}, which
+ * either wrap arrays on the heap or are memory mapped straight from a file
+ * written by {@link GraphFile}, so a mapped graph answers queries without
+ * ever copying its edges into the heap.
+ *
+ * The nodes handed out by this graph are lightweight read-only views. Trying to
+ * add or remove edges, or to create a node that does not exist, throws
+ * {@link UnsupportedOperationException}.
+ */
+public final class CompactGraph implements IGraph
+{
+    private final NameTable names;
+    private final IntBuffer offsets;
+    private final IntBuffer targets;
+    private final IntBuffer weights;
+    // null if no edge has any labels
+    private final ByteBuffer labels;
+    private final int minWeight;
+    private final int maxWeight;
+    // views are created the first time somebody asks for them, possibly from
+    // several threads at once, e.g. by a parallel BFS visitor
+    private final ConcurrentMap<Integer, CompactNode> views=new ConcurrentHashMap<Integer, CompactNode>();
+    // the graph with every edge reversed, built the first time it is needed
+    private CompactGraph reverse;
+
+    /**
+     * Freeze the given graph into a new compact snapshot. Later changes to
+     * the given graph are not reflected in the snapshot. The nodes of the
+     * snapshot keep the ids they have in the given graph.
+     *
+     * @param source
+     * @throws IllegalArgumentException if an edge leads to a node that is not
+     * part of the given graph
+     */
+    public CompactGraph(IGraph source) {
+        this(new Freezer(source));
+    }
+
+    private CompactGraph(Freezer f) {
+        this(f.names, f.ids, f.offsets, f.targets, f.weights, f.labels);
+    }
+
+    /**
+     * Create a compact graph directly from its arrays, which are not copied.
+     * Every row of targets must be sorted.
+     */
+    CompactGraph(String[] names, Map<String, Integer> ids, int[] offsets, int[] targets, int[] weights, byte[] labels) {
+        this(new ArrayNameTable(names, ids), offsets, targets, weights, labels);
+    }
+
+    /**
+     * Create a compact graph from arrays, which are not copied. Labels may be
+     * null if no edge has any.
+     */
+    CompactGraph(NameTable names, int[] offsets, int[] targets, int[] weights, byte[] labels) {
+        this(names, IntBuffer.wrap(offsets), IntBuffer.wrap(targets), IntBuffer.wrap(weights),
+                labels==null ? null : ByteBuffer.wrap(labels), min(weights), max(weights));
+    }
+
+    /**
+     * Create a compact graph from buffers, which are not copied, and the
+     * smallest and largest weight, which are not checked. The buffers start
+     * at position 0, every row of targets must be sorted, and labels may be
+     * null if no edge has any.
+     */
+    CompactGraph(NameTable names, IntBuffer offsets, IntBuffer targets, IntBuffer weights, ByteBuffer labels,
+            int minWeight, int maxWeight) {
+        this.names=names;
+        this.offsets=offsets;
+        this.targets=targets;
+        this.weights=weights;
+        this.labels=labels;
+        this.minWeight=minWeight;
+        this.maxWeight=maxWeight;
+    }
+
+    private static int min(int[] weights) {
+        int min=weights.length==0 ? 0 : Integer.MAX_VALUE;
+        for (int w : weights) {
+            min=Math.min(min, w);
+        }
+        return min;
+    }
+
+    private static int max(int[] weights) {
+        int max=weights.length==0 ? 0 : Integer.MIN_VALUE;
+        for (int w : weights) {
+            max=Math.max(max, w);
+        }
+        return max;
+    }
+
+    /**
+     * Maps the ids of a compact graph to the names of its nodes and back.
+     */
+    interface NameTable
+    {
+        int size();
+
+        String name(int id);
+
+        /**
+         * Return the id of the node with the given name, or -1 if there is none.
+         */
+        int id(String name);
+    }
+
+    /**
+     * Names in an array, and ids in a HashMap.
+     */
+    private static final class ArrayNameTable implements NameTable
+    {
+        private final String[] names;
+        private final Map<String, Integer> ids;
+
+        ArrayNameTable(String[] names, Map<String, Integer> ids) {
+            this.names=names;
+            this.ids=ids;
+        }
+
+        @Override
+        public int size() {
+            return names.length;
+        }
+
+        @Override
+        public String name(int id) {
+            return names[id];
+        }
+
+        @Override
+        public int id(String name) {
+            Integer id=ids.get(name);
+            return id==null ? -1 : id;
+        }
+    }
+
+    /**
+     * Copies the nodes and edges of an {@link IGraph} into CSR arrays.
+     */
+    private static final class Freezer
+    {
+        final String[] names;
+        final Map<String, Integer> ids;
+        final int[] offsets;
+        final int[] targets;
+        final int[] weights;
+        final byte[] labels;
+
+        Freezer(IGraph source) {
+            int n=source.getNodeCount();
+            names=new String[n];
+            ids=new HashMap<String, Integer>(n*2);
+            for (int i=0; i<n; i++) {
+                names[i]=source.getNodeById(i).getName();
+                ids.put(names[i], i);
+            }
+            int[][] rows=new int[n][];
+            offsets=new int[n+1];
+            for (int i=0; i<n; i++) {
+                rows[i]=source.neighborsOf(i);
+                offsets[i+1]=offsets[i]+rows[i].length;
+            }
+            targets=new int[offsets[n]];
+            weights=new int[offsets[n]];
+            labels=new byte[offsets[n]];
+            for (int i=0; i<n; i++) {
+                int[] neighbors=rows[i];
+                rows[i]=null;
+                Arrays.sort(neighbors);
+                for (int k=0; k<neighbors.length; k++) {
+                    int dst=neighbors[k];
+                    if (dst<0 || dst>=n) {
+                        throw new IllegalArgumentException("edge from "+names[i]+
+                                " leads to a node that is not in the graph");
+                    }
+                    int e=offsets[i]+k;
+                    targets[e]=dst;
+                    weights[e]=source.weight(i, dst);
+                    labels[e]=(byte)source.labels(i, dst);
+                }
+            }
+        }
+    }
+
+    /**
+     * Return a compact snapshot of the given graph, reusing the one a
+     * {@link Graph} already keeps for its id-based algorithms, or the graph
+     * itself if it already is compact.
+     *
+     * @param g
+     * @return
+     */
+    public static CompactGraph of(IGraph g) {
+        if (g instanceof CompactGraph) {
+            return (CompactGraph)g;
+        }
+        if (g instanceof Graph) {
+            return ((Graph)g).snapshot();
+        }
+        return new CompactGraph(g);
+    }
+
+    // Package-private accessors used by the algorithms in this package.
+
+    int size() {
+        return names.size();
+    }
+
+    int edgeCount() {
+        return targets.limit();
+    }
+
+    int begin(int u) {
+        return offsets.get(u);
+    }
+
+    int end(int u) {
+        return offsets.get(u+1);
+    }
+
+    int target(int edge) {
+        return targets.get(edge);
+    }
+
+    int weight(int edge) {
+        return weights.get(edge);
+    }
+
+    /**
+     * Label bits of the given edge.
+     */
+    int label(int edge) {
+        return labels==null ? 0 : labels.get(edge) & 0xFF;
+    }
+
+    /**
+     * Smallest edge weight, or 0 if there are no edges.
+     */
+    int minWeight() {
+        return minWeight;
+    }
+
+    /**
+     * Largest edge weight, or 0 if there are no edges.
+     */
+    int maxWeight() {
+        return maxWeight;
+    }
+
+    /**
+     * Return the graph with every edge turned around, which has the same
+     * nodes and ids. Row u of the reverse graph lists the nodes that have an
+     * edge to u. If the graph is undirected, this is the graph itself.
+     */
+    synchronized CompactGraph reverse() {
+        if (reverse==null) {
+            int n=size();
+            int m=edgeCount();
+            int[] rOffsets=new int[n+1];
+            for (int e=0; e<m; e++) {
+                rOffsets[target(e)+1]++;
+            }
+            for (int u=0; u<n; u++) {
+                rOffsets[u+1]+=rOffsets[u];
+            }
+            int[] rTargets=new int[m];
+            int[] rWeights=new int[m];
+            byte[] rLabels=new byte[m];
+            int[] cursor=Arrays.copyOf(rOffsets, n);
+            // sources are scattered in increasing order, so every row ends up sorted
+            for (int u=0; u<n; u++) {
+                for (int e=begin(u), end=end(u); e<end; e++) {
+                    int slot=cursor[target(e)]++;
+                    rTargets[slot]=u;
+                    rWeights[slot]=weight(e);
+                    rLabels[slot]=(byte)label(e);
+                }
+            }
+            ByteBuffer rLabelBuffer=labels==null ? null : ByteBuffer.wrap(rLabels);
+            if (IntBuffer.wrap(rOffsets).equals(offsets) && IntBuffer.wrap(rTargets).equals(targets)
+                    && IntBuffer.wrap(rWeights).equals(weights) && (labels==null || rLabelBuffer.equals(labels))) {
+                reverse=this;
+            } else {
+                reverse=new CompactGraph(names, IntBuffer.wrap(rOffsets), IntBuffer.wrap(rTargets),
+                        IntBuffer.wrap(rWeights), rLabelBuffer, minWeight, maxWeight);
+                reverse.reverse=this;
+            }
+        }
+        return reverse;
+    }
+
+    String name(int u) {
+        return names.name(u);
+    }
+
+    /**
+     * Return the id of the node with the given name, or -1 if there is no such node.
+     */
+    int id(String name) {
+        return names.id(name);
+    }
+
+    /**
+     * Return the index of the edge from u to v, or -1 if there is no such edge.
+     * Rows are sorted by target, so this is a binary search.
+     */
+    int edgeIndex(int u, int v) {
+        int lo=begin(u);
+        int hi=end(u)-1;
+        while (lo<=hi) {
+            int mid=(lo+hi)>>>1;
+            int t=target(mid);
+            if (t<v) {
+                lo=mid+1;
+            } else if (t>v) {
+                hi=mid-1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    CompactNode node(int id) {
+        CompactNode view=views.get(id);
+        if (view==null) {
+            view=views.computeIfAbsent(id, CompactNode::new);
+        }
+        return view;
+    }
+
+    private int requireId(String name) {
+        int id=id(name);
+        if (id<0) {
+            throw new IllegalArgumentException("no node named "+name);
+        }
+        return id;
+    }
+
+    /**
+     * Return the existing node with the given name.
+     *
+     * A compact graph is immutable, so this method cannot create new nodes.
+     *
+     * @param name
+     * @return
+     * @throws UnsupportedOperationException if there is no node with the given name
+     */
+    @Override
+    public INode getOrCreateNode(String name) {
+        int id=id(name);
+        if (id<0) {
+            throw new UnsupportedOperationException("cannot create node "+name+
+                    " in an immutable CompactGraph");
+        }
+        return node(id);
+    }
+
+    @Override
+    public boolean containsNode(String name) {
+        return id(name)>=0;
+    }
+
+    @Override
+    public Collection<INode> getAllNodes() {
+        return new AbstractList<INode>() {
+            @Override
+            public INode get(int index) {
+                return node(index);
+            }
+
+            @Override
+            public int size() {
+                return CompactGraph.this.size();
+            }
+        };
+    }
+
+    @Override
+    public int getNodeCount() {
+        return size();
+    }
+
+    @Override
+    public INode getNodeById(int id) {
+        if (id<0 || id>=size()) {
+            throw new IndexOutOfBoundsException("no node with id "+id);
+        }
+        return node(id);
+    }
+
+    @Override
+    public int getNodeId(String name) {
+        return id(name);
+    }
+
+    @Override
+    public int[] neighborsOf(int id) {
+        int[] result=new int[end(id)-begin(id)];
+        for (int e=begin(id), i=0; i<result.length; e++, i++) {
+            result[i]=target(e);
+        }
+        return result;
+    }
+
+    @Override
+    public int[] neighborsOf(int id, int labelMask) {
+        if (labelMask==ANY_EDGE) {
+            return neighborsOf(id);
+        }
+        int count=0;
+        for (int e=begin(id), end=end(id); e<end; e++) {
+            if ((label(e) & labelMask)!=0) {
+                count++;
+            }
+        }
+        int[] result=new int[count];
+        int i=0;
+        for (int e=begin(id), end=end(id); e<end; e++) {
+            if ((label(e) & labelMask)!=0) {
+                result[i++]=target(e);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public int weight(int src, int dst) {
+        return weight(requireEdge(src, dst));
+    }
+
+    @Override
+    public int labels(int src, int dst) {
+        return label(requireEdge(src, dst));
+    }
+
+    private int requireEdge(int src, int dst) {
+        int e=edgeIndex(src, dst);
+        if (e<0) {
+            throw new IllegalStateException("no edge from "+name(src)+" to "+name(dst));
+        }
+        return e;
+    }
+
+    /**
+     * Breadth-first search using an int array as the queue and a boolean
+     * array as the visited set. Neighbors are visited in order of their ids.
+     */
+    @Override
+    public void breadthFirstSearch(String startNode, NodeVisitor v) {
+        breadthFirstSearch(requireId(startNode), id -> v.visit(node(id)));
+    }
+
+    @Override
+    public boolean searchBreadthFirst(String startNode, SearchVisitor v) {
+        return searchBreadthFirst(requireId(startNode), id -> v.visit(node(id)));
+    }
+
+    /**
+     * Breadth-first search from the given id that hands the id of every node
+     * to the given consumer, in the order the nodes are visited.
+     */
+    void breadthFirstSearch(int start, IntConsumer visit) {
+        searchBreadthFirst(start, id -> {
+            visit.accept(id);
+            return VisitResult.CONTINUE;
+        });
+    }
+
+    /**
+     * Breadth-first search from the given id that hands the id of every node
+     * to the given function, in the order the nodes are visited, and does what
+     * it returns. Returns true if the search was stopped.
+     */
+    boolean searchBreadthFirst(int start, IntFunction<VisitResult> visit) {
+        boolean[] visited=new boolean[size()];
+        int[] queue=new int[size()];
+        int head=0;
+        int tail=0;
+        queue[tail++]=start;
+        visited[start]=true;
+        while (head<tail) {
+            int u=queue[head++];
+            VisitResult result=visit.apply(u);
+            if (result==VisitResult.STOP) {
+                return true;
+            }
+            if (result==VisitResult.SKIP_CHILDREN) {
+                continue;
+            }
+            for (int e=begin(u), end=end(u); e<end; e++) {
+                int w=target(e);
+                if (!visited[w]) {
+                    visited[w]=true;
+                    queue[tail++]=w;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Depth-first search that visits every node when it is discovered,
+     * see {@link #depthFirstSearch(int, IntFunction, DepthFirstVisitor)}.
+     */
+    @Override
+    public void depthFirstSearch(String startNode, NodeVisitor v) {
+        depthFirstSearch(startNode, new DepthFirstVisitor() {
+            @Override
+            public void discover(INode node) {
+                v.visit(node);
+            }
+        });
+    }
+
+    @Override
+    public void depthFirstSearch(String startNode, DepthFirstVisitor v) {
+        depthFirstSearch(requireId(startNode), this::node, v, null);
+    }
+
+    @Override
+    public boolean searchDepthFirst(String startNode, SearchVisitor v) {
+        return depthFirstSearch(requireId(startNode), this::node, new DepthFirstVisitor() {}, v);
+    }
+
+    /**
+     * Iterative depth-first search from the given id. The stack holds each
+     * node on the current path once, and a cursor per node remembers the next
+     * edge of its row to look at, so a node is finished when its cursor runs
+     * off the end of its row. Nothing is allocated beyond three arrays the
+     * size of the graph. The given function turns ids into the nodes handed
+     * to the visitors.
+     *
+     * If control is not null, it is called on every node right after discover.
+     * SKIP_CHILDREN moves the node's cursor to the end of its row, so the node
+     * is finished next, and STOP returns true at once without finishing the
+     * nodes on the stack.
+     */
+    boolean depthFirstSearch(int start, IntFunction<? extends INode> nodes, DepthFirstVisitor v, SearchVisitor control) {
+        boolean[] visited=new boolean[size()];
+        int[] stack=new int[size()];
+        int[] cursor=new int[size()];
+        int top=0;
+        visited[start]=true;
+        stack[top++]=start;
+        cursor[start]=begin(start);
+        if (discover(nodes.apply(start), v, control, cursor, start)) {
+            return true;
+        }
+        while (top>0) {
+            int u=stack[top-1];
+            int e=cursor[u];
+            if (e==end(u)) {
+                top--;
+                v.finish(nodes.apply(u));
+                continue;
+            }
+            cursor[u]=e+1;
+            int w=target(e);
+            if (!visited[w]) {
+                visited[w]=true;
+                INode child=nodes.apply(w);
+                v.treeEdge(nodes.apply(u), child);
+                stack[top++]=w;
+                cursor[w]=begin(w);
+                if (discover(child, v, control, cursor, w)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Report the discovery of a node and apply the control code for it.
+     * Returns true if the search has to stop.
+     */
+    private boolean discover(INode node, DepthFirstVisitor v, SearchVisitor control, int[] cursor, int id) {
+        v.discover(node);
+        if (control==null) {
+            return false;
+        }
+        VisitResult result=control.visit(node);
+        if (result==VisitResult.SKIP_CHILDREN) {
+            cursor[id]=end(id);
+        }
+        return result==VisitResult.STOP;
+    }
+
+    @Override
+    public Stream<INode> bfsStream(String startNode) {
+        return bfsStream(requireId(startNode), this::node);
+    }
+
+    @Override
+    public Stream<INode> dfsStream(String startNode) {
+        return dfsStream(requireId(startNode), this::node);
+    }
+
+    @Override
+    public Stream<Map.Entry<INode,Integer>> dijkstraStream(String startNode) {
+        return dijkstraStream(requireId(startNode), this::node);
+    }
+
+    /**
+     * Lazy traversal streams over this graph, see {@link LazyTraversals}.
+     * The given function turns ids into the nodes in the stream.
+     */
+    Stream<INode> bfsStream(int start, IntFunction<? extends INode> nodes) {
+        return StreamSupport.intStream(LazyTraversals.bfs(this, start), false).mapToObj(nodes);
+    }
+
+    Stream<INode> dfsStream(int start, IntFunction<? extends INode> nodes) {
+        return StreamSupport.intStream(LazyTraversals.dfs(this, start), false).mapToObj(nodes);
+    }
+
+    Stream<Map.Entry<INode,Integer>> dijkstraStream(int start, IntFunction<? extends INode> nodes) {
+        return StreamSupport.longStream(LazyTraversals.dijkstra(this, start), false)
+            .mapToObj(entry -> new AbstractMap.SimpleImmutableEntry<INode,Integer>(
+                nodes.apply(LongMinHeap.idOf(entry)), LongMinHeap.priorityOf(entry)));
+    }
+
+    /**
+     * Hop distances computed with a direction-optimizing BFS over bitsets,
+     * see {@link HybridBfs}.
+     */
+    @Override
+    public int[] bfs(int source) {
+        return HybridBfs.hops(this, source);
+    }
+
+    /**
+     * Bit-parallel BFS from all the sources at once, see {@link MultiSourceBfs}.
+     */
+    @Override
+    public int[][] multiSourceBfs(int... sources) {
+        for (int s : sources) {
+            if (s<0 || s>=size()) {
+                throw new IndexOutOfBoundsException("no node with id "+s);
+            }
+        }
+        return MultiSourceBfs.hops(this, sources);
+    }
+
+    /**
+     * Step-by-step expansion over bitsets, see {@link FrontierExpansion}.
+     */
+    @Override
+    public BitSet[] stepFrontiers(BitSet start, int steps, int... stepMasks) {
+        return FrontierExpansion.expand(this, start, steps, stepMasks);
+    }
+
+    /**
+     * Parallel BFS on the common fork/join pool, see {@link ParallelBfs}.
+     */
+    @Override
+    public BfsTree parallelBfs(int source, NodeVisitor v, boolean deterministicOrder) {
+        return parallelBfs(source, ForkJoinPool.commonPool(), v==null ? null : id -> v.visit(node(id)), deterministicOrder);
+    }
+
+    BfsTree parallelBfs(int source, ForkJoinPool pool, IntConsumer visit, boolean deterministicOrder) {
+        if (source<0 || source>=size()) {
+            throw new IndexOutOfBoundsException("no node with id "+source);
+        }
+        return ParallelBfs.run(this, source, pool, visit, deterministicOrder);
+    }
+
+    /**
+     * Dijkstra's algorithm over the CSR arrays. The priority queue is picked
+     * from the range of edge weights, see {@link DijkstraEngine#AUTO}.
+     */
+    @Override
+    public int[] dijkstra(int source) {
+        return dijkstra(source, DijkstraEngine.AUTO);
+    }
+
+    @Override
+    public int[] dijkstra(int source, DijkstraEngine engine) {
+        return ShortestPaths.dijkstra(this, source, engine);
+    }
+
+    /**
+     * Nodes that cannot be reached are not in the returned map.
+     */
+    @Override
+    public Map<INode, Integer> dijkstra(String sourceNode) {
+        int[] dist=dijkstra(requireId(sourceNode));
+        Map<INode, Integer> result=new HashMap<INode, Integer>();
+        for (int u=0; u<dist.length; u++) {
+            if (dist[u]!=UNREACHABLE) {
+                result.put(node(u), dist[u]);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public Path shortestPath(String src, String dst) {
+        int[] ids=shortestPath(requireId(src), requireId(dst));
+        return ids==null ? null : Path.fromIds(this, ids);
+    }
+
+    @Override
+    public int[] shortestPath(int src, int dst) {
+        return ShortestPaths.pointToPoint(this, src, dst);
+    }
+
+    @Override
+    public Path bidirectionalShortestPath(String src, String dst) {
+        int[] ids=bidirectionalShortestPath(requireId(src), requireId(dst));
+        return ids==null ? null : Path.fromIds(this, ids);
+    }
+
+    @Override
+    public int[] bidirectionalShortestPath(int src, int dst) {
+        return BidirectionalSearch.shortestPath(this, src, dst);
+    }
+
+    @Override
+    public Path aStar(String src, String dst, Heuristic h) {
+        int[] ids=aStar(requireId(src), requireId(dst), h);
+        return ids==null ? null : Path.fromIds(this, ids);
+    }
+
+    @Override
+    public int[] aStar(int src, int dst, Heuristic h) {
+        return ShortestPaths.aStar(this, src, dst, h);
+    }
+
+    @Override
+    public Path constrainedShortestPath(String src, String dst, LabelAutomaton a) {
+        int[] ids=constrainedShortestPath(requireId(src), requireId(dst), a);
+        return ids==null ? null : Path.fromIds(this, ids);
+    }
+
+    /**
+     * Search over (node, automaton state) pairs, see {@link ConstrainedPaths}.
+     */
+    @Override
+    public int[] constrainedShortestPath(int src, int dst, LabelAutomaton a) {
+        return ConstrainedPaths.shortestPath(this, src, dst, a);
+    }
+
+    /**
+     * Prim-Jarnik's algorithm over the CSR arrays. If the graph is not connected,
+     * the result is a minimum spanning forest, with one tree per component.
+     *
+     * The result is a regular mutable {@link Graph}.
+     */
+    @Override
+    public IGraph primJarnik() {
+        return spanningForest(new Graph());
+    }
+
+    /**
+     * Compute a minimum spanning forest and add its nodes and edges to the
+     * given empty graph, which is returned. Nodes are created in id order,
+     * so they get the same ids as in this graph.
+     */
+    IGraph spanningForest(IGraph mst) {
+        int n=size();
+        int[] best=new int[n];
+        int[] parent=new int[n];
+        boolean[] inTree=new boolean[n];
+        Arrays.fill(best, Integer.MAX_VALUE);
+        Arrays.fill(parent, -1);
+        LongMinHeap heap=new LongMinHeap(n);
+        for (int root=0; root<n; root++) {
+            if (inTree[root]) {
+                continue;
+            }
+            heap.push(LongMinHeap.pack(Integer.MIN_VALUE, root));
+            while (!heap.isEmpty()) {
+                long entry=heap.pollMin();
+                int u=LongMinHeap.idOf(entry);
+                if (inTree[u]) {
+                    continue;
+                }
+                inTree[u]=true;
+                for (int e=begin(u), end=end(u); e<end; e++) {
+                    int w=target(e);
+                    if (!inTree[w] && weight(e)<best[w]) {
+                        best[w]=weight(e);
+                        parent[w]=u;
+                        heap.push(LongMinHeap.pack(weight(e), w));
+                    }
+                }
+            }
+        }
+        for (int u=0; u<n; u++) {
+            mst.getOrCreateNode(name(u));
+        }
+        for (int u=0; u<n; u++) {
+            if (parent[u]>=0) {
+                // the tree edge keeps the labels of the edge it was chosen from
+                mst.getOrCreateNode(name(parent[u]))
+                    .addUndirectedEdgeToNode(mst.getOrCreateNode(name(u)), best[u], label(edgeIndex(parent[u], u)));
+            }
+        }
+        return mst;
+    }
+
+    /**
+     * Read-only view of a single node of a {@link CompactGraph}.
+     */
+    final class CompactNode implements INode
+    {
+        private final int id;
+
+        private CompactNode(int id) {
+            this.id=id;
+        }
+
+        @Override
+        public int getId() {
+            return id;
+        }
+
+        @Override
+        public String getName() {
+            return name(id);
+        }
+
+        @Override
+        public Collection<INode> getNeighbors() {
+            return Collections.unmodifiableList(new AbstractList<INode>() {
+                @Override
+                public INode get(int index) {
+                    return node(target(begin(id)+index));
+                }
+
+                @Override
+                public int size() {
+                    return end(id)-begin(id);
+                }
+            });
+        }
+
+        @Override
+        public Collection<INode> getNeighbors(int labelMask) {
+            int[] ids=neighborsOf(id, labelMask);
+            return Collections.unmodifiableList(new AbstractList<INode>() {
+                @Override
+                public INode get(int index) {
+                    return node(ids[index]);
+                }
+
+                @Override
+                public int size() {
+                    return ids.length;
+                }
+            });
+        }
+
+        @Override
+        public void addDirectedEdgeToNode(INode neighbor, int weight) {
+            throw new UnsupportedOperationException("CompactGraph is immutable");
+        }
+
+        @Override
+        public void addDirectedEdgeToNode(INode neighbor, int weight, int labels) {
+            throw new UnsupportedOperationException("CompactGraph is immutable");
+        }
+
+        @Override
+        public void addUndirectedEdgeToNode(INode neighbor, int weight, int labels) {
+            throw new UnsupportedOperationException("CompactGraph is immutable");
+        }
+
+        @Override
+        public void addUndirectedEdgeToNode(INode neighbor, int weight) {
+            throw new UnsupportedOperationException("CompactGraph is immutable");
+        }
+
+        @Override
+        public void removeDirectedEdgeToNode(INode neighbor) {
+            throw new UnsupportedOperationException("CompactGraph is immutable");
+        }
+
+        @Override
+        public void removeUndirectedEdgeToNode(INode neighbor) {
+            throw new UnsupportedOperationException("CompactGraph is immutable");
+        }
+
+        @Override
+        public boolean hasEdge(INode other) {
+            return edgeTo(other)>=0;
+        }
+
+        /**
+         * Get the weight of the edge to the given node.
+         *
+         * @throws IllegalStateException if there is no such edge
+         */
+        @Override
+        public int getWeight(INode other) {
+            int e=edgeTo(other);
+            if (e<0) {
+                throw new IllegalStateException();
+            }
+            return weight(e);
+        }
+
+        /**
+         * Get the label bits of the edge to the given node.
+         *
+         * @throws IllegalStateException if there is no such edge
+         */
+        @Override
+        public int getLabels(INode other) {
+            int e=edgeTo(other);
+            if (e<0) {
+                throw new IllegalStateException();
+            }
+            return label(e);
+        }
+
+        private int edgeTo(INode other) {
+            int target;
+            if (other instanceof CompactNode && ((CompactNode)other).graph()==CompactGraph.this) {
+                target=((CompactNode)other).id;
+            } else {
+                target=CompactGraph.this.id(other.getName());
+                if (target<0) {
+                    return -1;
+                }
+            }
+            return edgeIndex(id, target);
+        }
+
+        private CompactGraph graph() {
+            return CompactGraph.this;
+        }
+
+        @Override
+        public String toString() {
+            return name(id);
+        }
+    }
+}
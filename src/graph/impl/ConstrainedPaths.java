@@ -0,0 +1,147 @@
+package graph.impl;
+
+import java.util.Arrays;
+
+import graph.IGraph;
+import graph.LabelAutomaton;
+
+/**
+ * Shortest paths whose sequence of edge labels has to be accepted by a
+ * {@link LabelAutomaton}.
+ *
+ * The search runs over the product graph, whose nodes are pairs (node,
+ * automaton state) and whose edges are the edges of the graph that the
+ * automaton can follow from the state. The product graph is never built: a
+ * pair is encoded as the single int <code>node*S+state</code>, where S is the
+ * number of states, so the usual int arrays and the indexed heap work on it
+ * unchanged, and the edges of a pair are the row of its node filtered through
+ * the automaton. An edge without labels is followed by the automaton's
+ * transition for {@link LabelAutomaton#UNLABELED}.
+ *
+ * Both methods return the ids of the nodes on a cheapest matching path, or
+ * null if there is none.
+ */
+final class ConstrainedPaths
+{
+    /**
+     * Breadth-first search over the product graph if every edge has the same
+     * weight, and Dijkstra otherwise.
+     */
+    static int[] shortestPath(CompactGraph g, int source, int target, LabelAutomaton a) {
+        if ((long)g.size()*a.getStateCount()>Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("the product of "+g.size()+" nodes and "+
+                    a.getStateCount()+" states is too big");
+        }
+        if (g.minWeight()==g.maxWeight() && g.minWeight()>=0) {
+            return bfs(g, source, target, a);
+        }
+        return dijkstra(g, source, target, a);
+    }
+
+    /**
+     * Dijkstra over the product graph with an indexed heap, stopping as soon
+     * as a pair of the target and an accepting state is settled. Edge weights
+     * must not be negative.
+     */
+    static int[] dijkstra(CompactGraph g, int source, int target, LabelAutomaton a) {
+        int states=a.getStateCount();
+        int size=g.size()*states;
+        int[] dist=new int[size];
+        Arrays.fill(dist, IGraph.UNREACHABLE);
+        int[] pred=new int[size];
+        IndexedDaryHeap heap=new IndexedDaryHeap(size);
+        int start=source*states;
+        dist[start]=0;
+        pred[start]=-1;
+        heap.offer(start, 0);
+        while (!heap.isEmpty()) {
+            int x=heap.poll();
+            int u=x/states;
+            int q=x%states;
+            if (u==target && a.isAccepting(q)) {
+                return nodes(pred, x, states);
+            }
+            for (int e=g.begin(u), end=g.end(u); e<end; e++) {
+                int cost=dist[x]+g.weight(e);
+                int base=g.target(e)*states;
+                for (int labels=symbols(g.label(e)); labels!=0; labels&=labels-1) {
+                    int next=a.next(q, Integer.numberOfTrailingZeros(labels));
+                    if (next>=0 && cost<dist[base+next]) {
+                        dist[base+next]=cost;
+                        pred[base+next]=x;
+                        heap.offer(base+next, cost);
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Breadth-first search over the product graph. Every pair is reached
+     * first along a path with the fewest edges, so the search stops as soon
+     * as it reaches the target in an accepting state.
+     */
+    static int[] bfs(CompactGraph g, int source, int target, LabelAutomaton a) {
+        int states=a.getStateCount();
+        int size=g.size()*states;
+        int[] pred=new int[size];
+        boolean[] seen=new boolean[size];
+        int[] queue=new int[size];
+        int start=source*states;
+        if (source==target && a.isAccepting(0)) {
+            return new int[] {source};
+        }
+        seen[start]=true;
+        pred[start]=-1;
+        queue[0]=start;
+        int head=0;
+        int tail=1;
+        while (head<tail) {
+            int x=queue[head++];
+            int u=x/states;
+            int q=x%states;
+            for (int e=g.begin(u), end=g.end(u); e<end; e++) {
+                int w=g.target(e);
+                for (int labels=symbols(g.label(e)); labels!=0; labels&=labels-1) {
+                    int next=a.next(q, Integer.numberOfTrailingZeros(labels));
+                    if (next<0 || seen[w*states+next]) {
+                        continue;
+                    }
+                    int y=w*states+next;
+                    seen[y]=true;
+                    pred[y]=x;
+                    if (w==target && a.isAccepting(next)) {
+                        return nodes(pred, y, states);
+                    }
+                    queue[tail++]=y;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Return the bits of the automaton symbols read by an edge with the given
+     * labels: the labels themselves, or just {@link LabelAutomaton#UNLABELED}.
+     */
+    private static int symbols(int labels) {
+        return labels!=0 ? labels : 1<<LabelAutomaton.UNLABELED;
+    }
+
+    /**
+     * Follow the predecessors back from the given pair and return the node ids
+     * along the way, dropping the automaton states.
+     */
+    private static int[] nodes(int[] pred, int pair, int states) {
+        int[] path=ShortestPaths.walkBack(pred, pair);
+        for (int i=0; i<path.length; i++) {
+            path[i]/=states;
+        }
+        return path;
+    }
+
+    private ConstrainedPaths() {
+        // only static methods
+    }
+}
@@ -0,0 +1,562 @@
+package graph.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import graph.INode;
+
+/**
+ * Reads a graph in the DOT language of GraphViz in a single pass, turning
+ * the bytes into tokens and the tokens into nodes and edges as they go.
+ *
+ * The supported part of the language is:
+ * <ul>
+ * <li><code>graph</code> with <code>--</code> edges, or <code>digraph</code>
+ * with <code>-&gt;</code> edges, optionally <code>strict</code> and named</li>
+ * <li>identifiers, numerals, double-quoted strings with <code>\"</code>,
+ * <code>\\</code> and <code>\n</code> for a quote, a backslash and a
+ * newline, and HTML strings in angle brackets</li>
+ * <li>edge chains like <code>A -- B -- C</code>, where every edge gets the
+ * attributes at the end of the chain</li>
+ * <li>node statements, which create nodes without edges</li>
+ * <li>attribute lists, <code>graph</code>/<code>node</code>/<code>edge</code>
+ * attribute statements and <code>key=value</code> statements</li>
+ * <li><code>//</code>, <code>/* *&#47;</code> and <code>#</code> comments</li>
+ * </ul>
+ * Ports after node names are skipped. Subgraphs are not supported.
+ *
+ * The weight of an edge is its <code>label</code> if that is an int, which is
+ * where the DOT writers of {@link graph.GraphFactories} put it. GraphViz's own
+ * <code>weight</code> attribute is a layout hint that is often a float, so it
+ * is only used if it is an int and there is no int label; any other value is
+ * ignored. An edge with neither gets the weight set by the last
+ * <code>edge [...]</code> statement, or else 1. Names are looked up by their
+ * bytes in a {@link NameDictionary}, so a name is decoded once.
+ */
+public final class DotReader
+{
+    // token types
+    private static final int EOF=0;
+    private static final int ID=1;
+    private static final int LBRACE=2;
+    private static final int RBRACE=3;
+    private static final int LBRACKET=4;
+    private static final int RBRACKET=5;
+    private static final int EQUALS=6;
+    private static final int SEMICOLON=7;
+    private static final int COMMA=8;
+    private static final int COLON=9;
+    private static final int UNDIRECTED_EDGE=10;
+    private static final int DIRECTED_EDGE=11;
+    private static final String[] SYMBOLS={"end of input", null, "{", "}", "[", "]", "=", ";", ",", ":", "--", "->"};
+
+    private static final int BUFFER_SIZE=1<<16;
+
+    private final ReadableByteChannel in;
+    private final byte[] buf=new byte[BUFFER_SIZE];
+    private int pos;
+    private int limit;
+    private int line=1;
+
+    // the current token; the bytes of an ID are in text[0..length)
+    private int token;
+    private byte[] text=new byte[64];
+    private int length;
+    private boolean quoted;
+
+    // the first ID of the current statement, and the nodes of an edge chain
+    private byte[] held=new byte[64];
+    private INode[] chain=new INode[4];
+
+    private final Graph g=new Graph();
+    private final NameDictionary names=new NameDictionary();
+    private boolean directed;
+    private int defaultWeight=1;
+    // the weight given by the attribute lists just parsed, if any
+    private boolean hasWeight;
+    private int weight;
+
+    private DotReader(ReadableByteChannel in) {
+        this.in=in;
+    }
+
+    /**
+     * Read a graph from the given DOT input, and close the stream.
+     *
+     * @param in
+     * @return
+     * @throws IOException if the input cannot be read or is not valid DOT
+     */
+    public static Graph read(InputStream in) throws IOException {
+        return read(Channels.newChannel(in));
+    }
+
+    /**
+     * Read a graph from the given DOT input, and close the channel.
+     *
+     * @param in
+     * @return
+     * @throws IOException if the input cannot be read or is not valid DOT
+     */
+    public static Graph read(ReadableByteChannel in) throws IOException {
+        try {
+            DotReader reader=new DotReader(in);
+            reader.parseGraph();
+            return reader.g;
+        } finally {
+            in.close();
+        }
+    }
+
+    // ---------------------------------------------------------------- parser
+
+    private void parseGraph() throws IOException {
+        next();
+        if (isKeyword("strict")) {
+            next();
+        }
+        if (isKeyword("digraph")) {
+            directed=true;
+        } else if (!isKeyword("graph")) {
+            throw error("expected graph or digraph");
+        }
+        next();
+        if (token==ID) {
+            next();
+        }
+        expect(LBRACE);
+        while (token!=RBRACE) {
+            parseStatement();
+            if (token==SEMICOLON) {
+                next();
+            }
+        }
+        // anything after the closing brace, such as a second graph, is ignored
+    }
+
+    private void parseStatement() throws IOException {
+        if (token!=ID) {
+            throw error(token==LBRACE || isKeyword("subgraph") ? "subgraphs are not supported" : "expected a statement");
+        }
+        if (isKeyword("graph") || isKeyword("node") || isKeyword("edge")) {
+            boolean edge=isKeyword("edge");
+            next();
+            if (token!=LBRACKET) {
+                throw error("expected [");
+            }
+            parseAttributes();
+            if (edge && hasWeight) {
+                defaultWeight=weight;
+            }
+            return;
+        }
+        if (isKeyword("subgraph")) {
+            throw error("subgraphs are not supported");
+        }
+        // hold on to the first ID until we know whether it is a node
+        if (held.length<length) {
+            held=Arrays.copyOf(text, text.length);
+        }
+        System.arraycopy(text, 0, held, 0, length);
+        int heldLength=length;
+        next();
+        if (token==EQUALS) {
+            // a graph attribute, key=value
+            next();
+            expect(ID);
+            return;
+        }
+        INode src=node(held, heldLength);
+        skipPort();
+        if (token!=UNDIRECTED_EDGE && token!=DIRECTED_EDGE) {
+            // a node statement
+            if (token==LBRACKET) {
+                parseAttributes();
+            }
+            return;
+        }
+        // an edge chain: collect its nodes, then add the edges once the
+        // attributes at the end are known
+        chain[0]=src;
+        int count=1;
+        while (token==UNDIRECTED_EDGE || token==DIRECTED_EDGE) {
+            if ((token==DIRECTED_EDGE)!=directed) {
+                throw error(directed ? "a digraph needs -> edges" : "a graph needs -- edges");
+            }
+            next();
+            if (token!=ID) {
+                throw error(token==LBRACE ? "subgraphs are not supported" : "expected a node");
+            }
+            if (count==chain.length) {
+                chain=Arrays.copyOf(chain, count*2);
+            }
+            chain[count++]=node(text, length);
+            next();
+            skipPort();
+        }
+        hasWeight=false;
+        if (token==LBRACKET) {
+            parseAttributes();
+        }
+        int w=hasWeight ? weight : defaultWeight;
+        for (int i=1; i<count; i++) {
+            if (directed) {
+                chain[i-1].addDirectedEdgeToNode(chain[i], w);
+            } else {
+                chain[i-1].addUndirectedEdgeToNode(chain[i], w);
+            }
+        }
+    }
+
+    private void skipPort() throws IOException {
+        // node:port or node:port:compass
+        while (token==COLON) {
+            next();
+            expect(ID);
+        }
+    }
+
+    /**
+     * Parse one or more attribute lists, starting at the [, and set weight
+     * from an int label attribute, or else from an int weight attribute.
+     */
+    private void parseAttributes() throws IOException {
+        hasWeight=false;
+        boolean fromLabel=false;
+        while (token==LBRACKET) {
+            next();
+            while (token!=RBRACKET) {
+                if (token!=ID) {
+                    throw error("expected an attribute");
+                }
+                boolean isWeight=isKeyword("weight");
+                boolean isLabel=isKeyword("label");
+                next();
+                if (token==EQUALS) {
+                    next();
+                    if (token!=ID) {
+                        throw error("expected an attribute value");
+                    }
+                    if (isLabel && isInt()) {
+                        weight=(int)parseLong();
+                        hasWeight=true;
+                        fromLabel=true;
+                    } else if (isWeight && !fromLabel && isInt()) {
+                        weight=(int)parseLong();
+                        hasWeight=true;
+                    }
+                    next();
+                }
+                if (token==COMMA || token==SEMICOLON) {
+                    next();
+                }
+            }
+            next();
+        }
+    }
+
+    /**
+     * Return true if the current ID is a decimal int.
+     */
+    private boolean isInt() {
+        int i=length>0 && text[0]=='-' ? 1 : 0;
+        if (i==length || length-i>10) {
+            return false;
+        }
+        for (; i<length; i++) {
+            if (text[i]<'0' || text[i]>'9') {
+                return false;
+            }
+        }
+        long value=parseLong();
+        return value>=Integer.MIN_VALUE && value<=Integer.MAX_VALUE;
+    }
+
+    /**
+     * Parse the current ID, which has at most 10 digits after an optional
+     * minus sign.
+     */
+    private long parseLong() {
+        boolean negative=text[0]=='-';
+        long value=0;
+        for (int i=negative ? 1 : 0; i<length; i++) {
+            value=value*10+(text[i]-'0');
+        }
+        return negative ? -value : value;
+    }
+
+    private INode node(byte[] b, int len) {
+        return EdgeListReader.node(g, names, names.intern(b, 0, len));
+    }
+
+    private boolean isKeyword(String keyword) {
+        if (token!=ID || quoted || length!=keyword.length()) {
+            return false;
+        }
+        for (int i=0; i<length; i++) {
+            if (Character.toLowerCase(text[i])!=keyword.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void expect(int type) throws IOException {
+        if (token!=type) {
+            throw error("unexpected "+describe());
+        }
+        next();
+    }
+
+    private String describe() {
+        if (token==ID) {
+            return new String(text, 0, length, StandardCharsets.UTF_8);
+        }
+        return SYMBOLS[token];
+    }
+
+    private IOException error(String message) {
+        return new IOException("line "+line+": "+message+" at "+describe());
+    }
+
+    // ----------------------------------------------------------------- lexer
+
+    /**
+     * Make sure there are at least n bytes after pos in the buffer, if the
+     * input has that many. Returns the number of bytes available, up to n.
+     */
+    private int ensure(int n) throws IOException {
+        if (limit-pos>=n) {
+            return n;
+        }
+        System.arraycopy(buf, pos, buf, 0, limit-pos);
+        limit-=pos;
+        pos=0;
+        ByteBuffer target=ByteBuffer.wrap(buf, limit, buf.length-limit);
+        while (limit<n) {
+            int read=in.read(target);
+            if (read<0) {
+                break;
+            }
+            limit+=read;
+        }
+        return Math.min(n, limit);
+    }
+
+    /**
+     * Return the byte ahead bytes after pos, or -1 past the end of the input.
+     */
+    private int peek(int ahead) throws IOException {
+        if (pos+ahead<limit || ensure(ahead+1)>ahead) {
+            return buf[pos+ahead] & 0xFF;
+        }
+        return -1;
+    }
+
+    private void append(int b) {
+        if (length==text.length) {
+            text=Arrays.copyOf(text, length*2);
+        }
+        text[length++]=(byte)b;
+    }
+
+    private static boolean isIdByte(int c) {
+        return (c>='a' && c<='z') || (c>='A' && c<='Z') || (c>='0' && c<='9') || c=='_' || c>=0x80;
+    }
+
+    /**
+     * Move to the next token.
+     */
+    private void next() throws IOException {
+        int c=skipSpaceAndComments();
+        length=0;
+        quoted=false;
+        switch (c) {
+        case -1:
+            token=EOF;
+            return;
+        case '{':
+            single(LBRACE);
+            return;
+        case '}':
+            single(RBRACE);
+            return;
+        case '[':
+            single(LBRACKET);
+            return;
+        case ']':
+            single(RBRACKET);
+            return;
+        case '=':
+            single(EQUALS);
+            return;
+        case ';':
+            single(SEMICOLON);
+            return;
+        case ',':
+            single(COMMA);
+            return;
+        case ':':
+            single(COLON);
+            return;
+        case '"':
+            quotedString();
+            return;
+        case '<':
+            htmlString();
+            return;
+        default:
+            break;
+        }
+        if (c=='-') {
+            int d=peek(1);
+            if (d=='-' || d=='>') {
+                pos+=2;
+                token=d=='-' ? UNDIRECTED_EDGE : DIRECTED_EDGE;
+                return;
+            }
+        }
+        if (c=='-' || c=='.' || (c>='0' && c<='9')) {
+            numeral();
+            return;
+        }
+        if (!isIdByte(c)) {
+            token=EOF;
+            throw new IOException("line "+line+": unexpected character "+(char)c);
+        }
+        token=ID;
+        for (int b=peek(0); b>=0 && isIdByte(b); b=peek(0)) {
+            append(b);
+            pos++;
+        }
+    }
+
+    private void single(int type) {
+        token=type;
+        pos++;
+    }
+
+    private void numeral() throws IOException {
+        token=ID;
+        append(peek(0));
+        pos++;
+        for (int b=peek(0); b>=0 && ((b>='0' && b<='9') || b=='.'); b=peek(0)) {
+            append(b);
+            pos++;
+        }
+    }
+
+    private void quotedString() throws IOException {
+        token=ID;
+        quoted=true;
+        int start=line;
+        pos++;
+        while (true) {
+            int b=peek(0);
+            if (b<0) {
+                throw new IOException("line "+start+": unterminated string");
+            }
+            pos++;
+            if (b=='"') {
+                return;
+            }
+            if (b=='\\') {
+                int escaped=peek(0);
+                if (escaped=='"' || escaped=='\\') {
+                    append(escaped);
+                    pos++;
+                    continue;
+                }
+                if (escaped=='n') {
+                    append('\n');
+                    pos++;
+                    continue;
+                }
+                if (escaped=='\n') {
+                    // a line continuation
+                    line++;
+                    pos++;
+                    continue;
+                }
+            }
+            if (b=='\n') {
+                line++;
+            }
+            append(b);
+        }
+    }
+
+    private void htmlString() throws IOException {
+        token=ID;
+        quoted=true;
+        int start=line;
+        int depth=0;
+        while (true) {
+            int b=peek(0);
+            if (b<0) {
+                throw new IOException("line "+start+": unterminated HTML string");
+            }
+            pos++;
+            if (b=='<') {
+                depth++;
+                if (depth==1) {
+                    continue;
+                }
+            } else if (b=='>') {
+                depth--;
+                if (depth==0) {
+                    return;
+                }
+            } else if (b=='\n') {
+                line++;
+            }
+            append(b);
+        }
+    }
+
+    /**
+     * Skip whitespace and comments and return the next byte, which is not
+     * consumed, or -1 at the end of the input.
+     */
+    private int skipSpaceAndComments() throws IOException {
+        while (true) {
+            int c=peek(0);
+            if (c<0) {
+                return -1;
+            }
+            if (c=='\n') {
+                line++;
+                pos++;
+            } else if (c<=' ') {
+                pos++;
+            } else if (c=='#' || (c=='/' && peek(1)=='/')) {
+                while ((c=peek(0))>=0 && c!='\n') {
+                    pos++;
+                }
+            } else if (c=='/' && peek(1)=='*') {
+                pos+=2;
+                while (true) {
+                    c=peek(0);
+                    if (c<0) {
+                        throw new IOException("line "+line+": unterminated comment");
+                    }
+                    if (c=='*' && peek(1)=='/') {
+                        pos+=2;
+                        break;
+                    }
+                    if (c=='\n') {
+                        line++;
+                    }
+                    pos++;
+                }
+            } else {
+                return c;
+            }
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package graph.impl;
+
+import graph.IGraph;
+import graph.INode;
+
+/**
+ * Helpers for the label bitmasks that edges carry, see
+ * {@link INode#addDirectedEdgeToNode(INode, int, int)}.
+ */
+final class EdgeLabels
+{
+    /**
+     * Check that the given labels fit in {@link INode#LABEL_BITS} bits and
+     * return them as a byte.
+     *
+     * @param labels
+     * @return
+     * @throws IllegalArgumentException if they don't fit
+     */
+    static byte toByte(int labels) {
+        if ((labels & ~0xFF)!=0) {
+            throw new IllegalArgumentException("labels must fit in "+INode.LABEL_BITS+" bits: "+labels);
+        }
+        return (byte)labels;
+    }
+
+    /**
+     * Return true if an edge with the given labels passes the given mask:
+     * the mask is {@link IGraph#ANY_EDGE}, or they have a bit in common.
+     *
+     * @param labels
+     * @param mask
+     * @return
+     */
+    static boolean matches(int labels, int mask) {
+        return mask==IGraph.ANY_EDGE || (labels & mask)!=0;
+    }
+
+    private EdgeLabels() {
+        // only static methods
+    }
+}
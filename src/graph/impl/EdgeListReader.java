@@ -0,0 +1,97 @@
+package graph.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
+
+import graph.IGraph;
+import graph.INode;
+
+/**
+ * Reads graphs from edge lists with one edge per line: the names of the two
+ * endpoints, optionally followed by the weight of the edge.
+ *
+ * The input is split into tokens by a {@link ByteTokenizer} and the names
+ * are looked up by their bytes in a {@link NameDictionary}, so there is no
+ * Scanner, no regular expression, and no String per token; a node's name is
+ * only decoded once, when the node is created.
+ */
+public final class EdgeListReader
+{
+    /**
+     * Read an undirected graph from the given edge list, and close the stream.
+     * If weighted is true every line ends with an int weight, otherwise every
+     * edge gets weight 1.
+     *
+     * @param in
+     * @param weighted
+     * @return
+     * @throws IOException if the input cannot be read, or a weight is not an
+     * int, or the last line is missing a token
+     */
+    public static Graph readUndirected(InputStream in, boolean weighted) throws IOException {
+        return readUndirected(Channels.newChannel(in), weighted);
+    }
+
+    /**
+     * Read an undirected graph from the given edge list, and close the channel.
+     *
+     * @param in
+     * @param weighted
+     * @return
+     * @throws IOException
+     * @see #readUndirected(InputStream, boolean)
+     */
+    public static Graph readUndirected(ReadableByteChannel in, boolean weighted) throws IOException {
+        ByteTokenizer tokens=new ByteTokenizer(in);
+        try {
+            Graph g=new Graph();
+            NameDictionary names=new NameDictionary();
+            while (tokens.hasNext()) {
+                INode src=node(g, names, tokens.nextName(names));
+                INode dst=node(g, names, tokens.nextName(names));
+                int weight=weighted ? tokens.nextInt() : 1;
+                src.addUndirectedEdgeToNode(dst, weight);
+            }
+            return g;
+        } finally {
+            tokens.close();
+        }
+    }
+
+    /**
+     * Read an undirected graph from the edge list in the given file, parsing
+     * pieces of the file on all cores of the common fork/join pool, straight
+     * into an immutable {@link CompactGraph}; see {@link ChunkedEdgeListReader}.
+     * Unlike the stream readers, every edge must be on a line of its own. If
+     * the same two nodes are on several lines, the last line wins.
+     *
+     * @param file
+     * @param weighted
+     * @return
+     * @throws IOException
+     */
+    public static CompactGraph loadCompactUndirected(Path file, boolean weighted) throws IOException {
+        return ChunkedEdgeListReader.read(file, weighted, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Return the node of the given graph for the name with the given id,
+     * creating it if the dictionary has just seen the name for the first time.
+     * Names get their ids in the same order the graph gives nodes theirs, so
+     * the two ids are the same.
+     */
+    static INode node(IGraph g, NameDictionary names, int id) {
+        if (id<g.getNodeCount()) {
+            return g.getNodeById(id);
+        }
+        return g.getOrCreateNode(names.name(id));
+    }
+
+    private EdgeListReader() {
+        // only static methods
+    }
+}
@@ -0,0 +1,111 @@
+package graph.impl;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+import graph.IGraph;
+
+/**
+ * Expands a set of nodes one step at a time along the edges of a
+ * {@link CompactGraph}: the frontier after step i is every node one edge away
+ * from some node of the frontier after step i-1, through an edge that matches
+ * the mask for step i.
+ *
+ * The frontiers are bitsets over node ids kept in two long[] buffers that
+ * swap roles every step, so a search of any length allocates only the
+ * results.
+ */
+final class FrontierExpansion
+{
+    /**
+     * Return the frontiers after steps 1 to steps, starting from the given
+     * set of ids. Element i of the result is the frontier after step i+1.
+     *
+     * @param g
+     * @param start
+     * @param steps
+     * @param masks one mask per step, or an empty array to allow every edge at every step
+     * @return
+     */
+    static BitSet[] expand(CompactGraph g, BitSet start, int steps, int[] masks) {
+        if (steps<0) {
+            throw new IllegalArgumentException("negative number of steps: "+steps);
+        }
+        if (masks.length!=0 && masks.length!=steps) {
+            throw new IllegalArgumentException("expected "+steps+" step masks but got "+masks.length);
+        }
+        if (start.length()>g.size()) {
+            throw new IndexOutOfBoundsException("no node with id "+(start.length()-1));
+        }
+        int words=(g.size()+63)>>>6;
+        long[] frontier=new long[words];
+        long[] next=new long[words];
+        long[] initial=start.toLongArray();
+        System.arraycopy(initial, 0, frontier, 0, initial.length);
+        BitSet[] result=new BitSet[steps];
+        for (int step=0; step<steps; step++) {
+            int mask=masks.length==0 ? IGraph.ANY_EDGE : masks[step];
+            boolean empty=true;
+            for (int w=0; w<words; w++) {
+                long bits=frontier[w];
+                while (bits!=0) {
+                    int u=(w<<6)+Long.numberOfTrailingZeros(bits);
+                    bits&=bits-1;
+                    for (int e=g.begin(u), end=g.end(u); e<end; e++) {
+                        if (EdgeLabels.matches(g.label(e), mask)) {
+                            HybridBfs.set(next, g.target(e));
+                            empty=false;
+                        }
+                    }
+                }
+            }
+            result[step]=BitSet.valueOf(next);
+            long[] tmp=frontier;
+            frontier=next;
+            next=tmp;
+            if (empty) {
+                // nothing can be reached from an empty frontier
+                for (int i=step+1; i<steps; i++) {
+                    result[i]=new BitSet();
+                }
+                break;
+            }
+            Arrays.fill(next, 0L);
+        }
+        return result;
+    }
+
+    /**
+     * Take one step from a frontier given as a list of ids: add to next, and
+     * set in seen, every node one edge away from one of the first count ids
+     * of frontier, through an edge whose labels match the mask. Nodes whose
+     * bit is already set in seen are skipped, so seen should start out empty.
+     * Costs the degrees of the nodes in the frontier, however big the graph.
+     *
+     * @param g
+     * @param frontier
+     * @param count
+     * @param seen
+     * @param next room for every node of the graph
+     * @param mask
+     * @return the number of ids added to next
+     */
+    static int step(CompactGraph g, int[] frontier, int count, long[] seen, int[] next, int mask) {
+        int found=0;
+        for (int i=0; i<count; i++) {
+            int u=frontier[i];
+            for (int e=g.begin(u), end=g.end(u); e<end; e++) {
+                int v=g.target(e);
+                if (EdgeLabels.matches(g.label(e), mask) && !HybridBfs.get(seen, v)) {
+                    HybridBfs.set(seen, v);
+                    next[found++]=v;
+                }
+            }
+        }
+        return found;
+    }
+
+    private FrontierExpansion() {
+        // only static methods
+    }
+}
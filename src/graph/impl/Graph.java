@@ -1,30 +1,45 @@
 package graph.impl;
 
+import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.PriorityQueue;
-import java.util.Queue;
-import java.util.Set;
-import java.util.Stack;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
 
+import graph.BfsTree;
+import graph.DepthFirstVisitor;
+import graph.DijkstraEngine;
+import graph.Heuristic;
 import graph.IGraph;
 import graph.INode;
+import graph.LabelAutomaton;
 
 import graph.NodeVisitor;
+import graph.Path;
+import graph.SearchVisitor;
 
 /**
  * A basic representation of a graph that can perform BFS, DFS, Dijkstra, and
  * Prim-Jarnik's algorithm for a minimum spanning tree.
  * 
+ * Every node gets a dense int id (0, 1, 2, ...) in the order the nodes are
+ * created. The id-based algorithms run on a {@link CompactGraph} snapshot of
+ * this graph, which is built the first time it is needed and thrown away
+ * whenever a node or an edge is added or removed.
+ * 
  * @author jspacco
  *
  */
 public class Graph implements IGraph {
 	private Map<String, INode> nodes = new HashMap<>();
+	// nodes indexed by their id
+	private List<INode> byId = new ArrayList<>();
+	// CSR snapshot for the id-based algorithms; null when it is out of date
+	private CompactGraph snapshot;
 
 	/**
 	 * Return the {@link Node} with the given name.
@@ -39,8 +54,11 @@ public class Graph implements IGraph {
 	public INode getOrCreateNode(String name) {
 		if (nodes.containsKey(name))
 			return nodes.get(name);
-		nodes.put(name, new Node(name));
-		return nodes.get(name);
+		INode node = new Node(name, byId.size(), this);
+		nodes.put(name, node);
+		byId.add(node);
+		edgesChanged();
+		return node;
 	}
 
 	/**
@@ -55,12 +73,133 @@ public class Graph implements IGraph {
 	}
 
 	/**
-	 * Return a collection of all of the nodes in the graph.
+	 * Return a collection of all of the nodes in the graph, in order of their ids.
 	 * 
 	 * @return
 	 */
 	public Collection<INode> getAllNodes() {
-		return nodes.values();
+		return Collections.unmodifiableList(byId);
+	}
+
+	/**
+	 * Return the number of nodes in the graph.
+	 * 
+	 * @return
+	 */
+	public int getNodeCount() {
+		return byId.size();
+	}
+
+	/**
+	 * Return the node with the given id.
+	 * 
+	 * @param id
+	 * @return
+	 */
+	public INode getNodeById(int id) {
+		return byId.get(id);
+	}
+
+	/**
+	 * Return the id of the node with the given name, or -1 if there is no such node.
+	 * 
+	 * @param name
+	 * @return
+	 */
+	public int getNodeId(String name) {
+		INode node = nodes.get(name);
+		return node == null ? -1 : node.getId();
+	}
+
+	/**
+	 * Return the ids of the neighbors of the node with the given id.
+	 * 
+	 * @param id
+	 * @return
+	 */
+	public int[] neighborsOf(int id) {
+		INode node = byId.get(id);
+		return idsOf(node, node.getNeighbors());
+	}
+
+	/**
+	 * Return the ids of the neighbors of the node with the given id whose edge
+	 * matches the given label mask.
+	 * 
+	 * @param id
+	 * @param labelMask
+	 * @return
+	 */
+	public int[] neighborsOf(int id, int labelMask) {
+		INode node = byId.get(id);
+		return idsOf(node, node.getNeighbors(labelMask));
+	}
+
+	/**
+	 * Return the ids of the given neighbors of the given node. A neighbor that
+	 * was not created by this graph may have the id of a different node of this
+	 * graph, or no id at all, so it is an error.
+	 */
+	private int[] idsOf(INode node, Collection<INode> neighbors) {
+		int[] result = new int[neighbors.size()];
+		int i = 0;
+		for (INode n : neighbors) {
+			int id = n.getId();
+			if (id < 0 || id >= byId.size() || byId.get(id) != n)
+				throw new IllegalArgumentException("edge from " + node.getName() + " to " + n.getName()
+						+ " leads to a node that is not in the graph");
+			result[i++] = id;
+		}
+		return result;
+	}
+
+	/**
+	 * Return the weight of the edge between the nodes with the given ids.
+	 * 
+	 * @param src
+	 * @param dst
+	 * @return
+	 */
+	public int weight(int src, int dst) {
+		return byId.get(src).getWeight(byId.get(dst));
+	}
+
+	/**
+	 * Return the label bits of the edge between the nodes with the given ids.
+	 * 
+	 * @param src
+	 * @param dst
+	 * @return
+	 */
+	public int labels(int src, int dst) {
+		return byId.get(src).getLabels(byId.get(dst));
+	}
+
+	/**
+	 * Called by the nodes of this graph whenever one of their edges changes,
+	 * so that the next id-based algorithm rebuilds the snapshot.
+	 */
+	void edgesChanged() {
+		snapshot = null;
+	}
+
+	/**
+	 * Return an up-to-date {@link CompactGraph} snapshot of this graph. Node
+	 * ids in the snapshot are the same as in this graph.
+	 * 
+	 * @return
+	 */
+	CompactGraph snapshot() {
+		if (snapshot == null)
+			snapshot = new CompactGraph(this);
+		return snapshot;
+	}
+
+	private int requireId(String name) {
+		int id = getNodeId(name);
+		if (id < 0)
+			throw new IllegalArgumentException("no node named " + name);
+		return id;
 	}
 
 	/**
@@ -73,22 +212,9 @@ public class Graph implements IGraph {
 	 * @param v
 	 */
 	public void breadthFirstSearch(String startNodeName, NodeVisitor v) {
-		Set<INode> visited= new HashSet<INode>();
-		Queue<INode> tovisit=new LinkedList<>();
-		tovisit.add(nodes.get(startNodeName));
-		while(tovisit.size()!=0) {
-			INode x=tovisit.remove();
-			//check if the node has already and skip if it has been visited because if not it will result to an infinite loop where we keep visiting the same thing 
-			if (visited.contains(x))
-				continue;
-			v.visit(x);
-			visited.add(tovisit.remove());
-			for (INode y: x.getNeighbors()) {
-				//going to adjacent nodes and adding them if they havent been visited to the queue
-				if (!visited.contains(y))
-					tovisit.add(y);
-			}
-		}	
+		// an int queue and a boolean[] visited set over the snapshot's ids;
+		// every node is marked visited when it is queued, so it is queued only once
+		snapshot().breadthFirstSearch(requireId(startNodeName), id -> v.visit(byId.get(id)));
 	}
 
 	/**
@@ -101,20 +227,49 @@ public class Graph implements IGraph {
 	 * @param v
 	 */
 	public void depthFirstSearch(String startNodeName, NodeVisitor v) {
-		//same as BFS but with a stack because we want the stuff that comes in later aka the neighbors of neighbors to come out before the first neighbours from the start
-		Set<INode> visited = new HashSet<>();
-		Stack<INode> tovisit=new Stack<INode>();
-		tovisit.push(nodes.get(startNodeName));
-		while(!tovisit.empty()) {
-			INode x=tovisit.pop();
-			if (visited.contains(x))
-				continue;
-			v.visit(x);
-			for (INode y: x.getNeighbors()) {
-				if (!visited.contains(y))
-					tovisit.push(y);
+		// an int stack with a cursor per node into its neighbors, so every node
+		// is pushed once and marked visited as soon as it is discovered
+		depthFirstSearch(startNodeName, new DepthFirstVisitor() {
+			@Override
+			public void discover(INode node) {
+				v.visit(node);
 			}
-		}
+		});
+	}
+
+	/**
+	 * Perform a depth-first search on the graph, starting at the node with the
+	 * given name, reporting discover, finish and tree edge events to the visitor.
+	 * 
+	 * @param startNodeName
+	 * @param v
+	 */
+	public void depthFirstSearch(String startNodeName, DepthFirstVisitor v) {
+		snapshot().depthFirstSearch(requireId(startNodeName), byId::get, v, null);
+	}
+
+	/**
+	 * Perform a breadth-first search on the graph, starting at the node with the
+	 * given name, that the visitor can prune or stop.
+	 * 
+	 * @param startNodeName
+	 * @param v
+	 * @return true if the visitor stopped the search
+	 */
+	public boolean searchBreadthFirst(String startNodeName, SearchVisitor v) {
+		return snapshot().searchBreadthFirst(requireId(startNodeName), id -> v.visit(byId.get(id)));
+	}
+
+	/**
+	 * Perform a depth-first search on the graph, starting at the node with the
+	 * given name, that the visitor can prune or stop.
+	 * 
+	 * @param startNodeName
+	 * @param v
+	 * @return true if the visitor stopped the search
+	 */
+	public boolean searchDepthFirst(String startNodeName, SearchVisitor v) {
+		return snapshot().depthFirstSearch(requireId(startNodeName), byId::get, new DepthFirstVisitor() {}, v);
 	}
 
 	/**
@@ -131,89 +286,235 @@ public class Graph implements IGraph {
 	 * @return
 	 */
 	public Map<INode, Integer> dijkstra(String startName) {
-		
-		//helper class path to help the priorityqueue
-		class Path implements Comparable<Path>{
-			private String destination;
-			private int cost;
-			Path(String dest,int cost){
-				this.destination=dest;
-				this.cost=cost;		
-			}
-			public String getdest() {
-				return this.destination;
-			}
-			public Integer getcost() {
-				//had to return Integer for compareto method
-				return this.cost;
-			}
-			@Override
-			public int compareTo(Path pt) {
-				return this.getcost().compareTo(pt.getcost());
-			}
-		}
-		
-		Map<INode,Integer> result= new HashMap<INode,Integer>();
-		PriorityQueue<Path> todo=new PriorityQueue<>();
-		todo.add(new Path(startName,0));
-		while (result.size()<this.getAllNodes().size()) {
-			Path nextpath= todo.poll();
-			INode node=nodes.get(nextpath.destination);
-			if (result.containsKey(node))
-				continue;
-			int cost= nextpath.getcost();
-			result.put(node,cost);
-			for (INode n : node.getNeighbors()) {
-				todo.add(new Path(n.getName(), cost + node.getWeight(n)));
-			}	
+		int[] dist = dijkstra(requireId(startName));
+		Map<INode, Integer> result = new HashMap<INode, Integer>();
+		for (int id = 0; id < dist.length; id++) {
+			if (dist[id] != UNREACHABLE)
+				result.put(byId.get(id), dist[id]);
 		}
 		return result;
 	}
 
+	/**
+	 * Perform Dijkstra's algorithm from the node with the given id, returning the
+	 * cost of reaching every node indexed by id.
+	 * 
+	 * @param source
+	 * @return
+	 */
+	public int[] dijkstra(int source) {
+		return snapshot().dijkstra(source);
+	}
+
+	/**
+	 * Perform Dijkstra's algorithm from the node with the given id using the
+	 * given priority queue engine.
+	 * 
+	 * @param source
+	 * @param engine
+	 * @return
+	 */
+	public int[] dijkstra(int source, DijkstraEngine engine) {
+		return snapshot().dijkstra(source, engine);
+	}
+
+	/**
+	 * Lazily stream the nodes in breadth-first order. The stream runs over the
+	 * current snapshot, so later changes to the graph don't affect it.
+	 * 
+	 * @param startNodeName
+	 * @return
+	 */
+	public Stream<INode> bfsStream(String startNodeName) {
+		return snapshot().bfsStream(requireId(startNodeName), byId::get);
+	}
+
+	/**
+	 * Lazily stream the nodes in depth-first order. The stream runs over the
+	 * current snapshot, so later changes to the graph don't affect it.
+	 * 
+	 * @param startNodeName
+	 * @return
+	 */
+	public Stream<INode> dfsStream(String startNodeName) {
+		return snapshot().dfsStream(requireId(startNodeName), byId::get);
+	}
+
+	/**
+	 * Lazily stream the nodes with their shortest path costs, in the order
+	 * Dijkstra's algorithm settles them.
+	 * 
+	 * @param startNodeName
+	 * @return
+	 */
+	public Stream<Map.Entry<INode,Integer>> dijkstraStream(String startNodeName) {
+		return snapshot().dijkstraStream(requireId(startNodeName), byId::get);
+	}
+
+	/**
+	 * Return the number of hops from the node with the given id to every node,
+	 * indexed by id. Uses a direction-optimizing BFS over bitsets.
+	 * 
+	 * @param source
+	 * @return
+	 */
+	public int[] bfs(int source) {
+		return snapshot().bfs(source);
+	}
+
+	/**
+	 * Return the number of hops from each of the given sources to every node,
+	 * one row per source. All the searches run together over per-node bitmasks.
+	 * 
+	 * @param sources
+	 * @return
+	 */
+	public int[][] multiSourceBfs(int... sources) {
+		return snapshot().multiSourceBfs(sources);
+	}
+
+	/**
+	 * Return the sets of node ids reachable in exactly 1, 2, ..., steps steps
+	 * from the given set of ids, following only the edges allowed by each
+	 * step's mask.
+	 * 
+	 * @param start
+	 * @param steps
+	 * @param stepMasks
+	 * @return
+	 */
+	public BitSet[] stepFrontiers(BitSet start, int steps, int... stepMasks) {
+		return snapshot().stepFrontiers(start, steps, stepMasks);
+	}
+
+	/**
+	 * Breadth-first search from the node with the given id that expands each
+	 * level in parallel on the common fork/join pool.
+	 * 
+	 * @param source
+	 * @param v
+	 * @param deterministicOrder
+	 * @return
+	 */
+	public BfsTree parallelBfs(int source, NodeVisitor v, boolean deterministicOrder) {
+		return snapshot().parallelBfs(source, ForkJoinPool.commonPool(),
+				v==null ? null : id -> v.visit(byId.get(id)), deterministicOrder);
+	}
+
+	/**
+	 * Find a cheapest path between the nodes with the given names, stopping
+	 * as soon as the destination is reached.
+	 * 
+	 * @param src
+	 * @param dst
+	 * @return the path, or null if there is none
+	 */
+	public Path shortestPath(String src, String dst) {
+		int[] ids = shortestPath(requireId(src), requireId(dst));
+		return ids == null ? null : Path.fromIds(this, ids);
+	}
+
+	/**
+	 * Find a cheapest path between the nodes with the given ids, stopping as
+	 * soon as the destination is reached.
+	 * 
+	 * @param src
+	 * @param dst
+	 * @return the ids along the path, or null if there is none
+	 */
+	public int[] shortestPath(int src, int dst) {
+		return snapshot().shortestPath(src, dst);
+	}
+
+	/**
+	 * Find a cheapest path between the nodes with the given names by searching
+	 * from both ends at the same time.
+	 * 
+	 * @param src
+	 * @param dst
+	 * @return the path, or null if there is none
+	 */
+	public Path bidirectionalShortestPath(String src, String dst) {
+		int[] ids = bidirectionalShortestPath(requireId(src), requireId(dst));
+		return ids == null ? null : Path.fromIds(this, ids);
+	}
+
+	/**
+	 * Find a cheapest path between the nodes with the given ids by searching
+	 * from both ends at the same time.
+	 * 
+	 * @param src
+	 * @param dst
+	 * @return the ids along the path, or null if there is none
+	 */
+	public int[] bidirectionalShortestPath(int src, int dst) {
+		return snapshot().bidirectionalShortestPath(src, dst);
+	}
+
+	/**
+	 * Find a cheapest path between the nodes with the given names using A*
+	 * search guided by the given heuristic.
+	 * 
+	 * @param src
+	 * @param dst
+	 * @param h
+	 * @return the path, or null if there is none
+	 */
+	public Path aStar(String src, String dst, Heuristic h) {
+		int[] ids = aStar(requireId(src), requireId(dst), h);
+		return ids == null ? null : Path.fromIds(this, ids);
+	}
+
+	/**
+	 * Find a cheapest path between the nodes with the given ids using A*
+	 * search guided by the given heuristic.
+	 * 
+	 * @param src
+	 * @param dst
+	 * @param h
+	 * @return the ids along the path, or null if there is none
+	 */
+	public int[] aStar(int src, int dst, Heuristic h) {
+		return snapshot().aStar(src, dst, h);
+	}
+
+	/**
+	 * Find a cheapest path between the nodes with the given names whose edge
+	 * labels are accepted by the given automaton.
+	 * 
+	 * @param src
+	 * @param dst
+	 * @param a
+	 * @return the path, or null if there is none
+	 */
+	public Path constrainedShortestPath(String src, String dst, LabelAutomaton a) {
+		int[] ids = constrainedShortestPath(requireId(src), requireId(dst), a);
+		return ids == null ? null : Path.fromIds(this, ids);
+	}
+
+	/**
+	 * Find a cheapest path between the nodes with the given ids whose edge
+	 * labels are accepted by the given automaton.
+	 * 
+	 * @param src
+	 * @param dst
+	 * @param a
+	 * @return the ids along the path, or null if there is none
+	 */
+	public int[] constrainedShortestPath(int src, int dst, LabelAutomaton a) {
+		return snapshot().constrainedShortestPath(src, dst, a);
+	}
+
 	/**
 	 * Perform Prim-Jarnik's algorithm to compute a Minimum Spanning Tree (MST).
 	 * 
 	 * The MST is itself a graph containing the same nodes and a subset of the edges
-	 * from the original graph.
+	 * from the original graph. The nodes of the MST have the same ids as the nodes
+	 * of this graph.
 	 * 
 	 * @return
 	 */
 	public IGraph primJarnik() {
-		class Edge implements Comparable <Edge>{
-			public final String src;
-			public final String dst;
-			public final int weight;
-			
-			public Edge(String src,String dst,int weight) {
-				this.src=src;
-				this.dst=dst;
-				this.weight=weight;
-			}
-			
-			public int compareTo(Edge ed) {
-				return this.weight-ed.weight;
-			}
-		}
-		IGraph graph=new Graph();
-		INode start=this.getAllNodes().iterator().next();
-		PriorityQueue<Edge> todo= new PriorityQueue<>();
-		
-		for (INode n : start.getNeighbors()) 
-			todo.add(new Edge(start.getName(),n.getName(),n.getWeight(start)));
-			
-			while (graph.getAllNodes().size()!=this.getAllNodes().size()) {
-				Edge e= todo.poll();
-				if (graph.containsNode(e.dst))
-					continue;
-				INode dst=graph.getOrCreateNode(e.dst);
-				INode src=graph.getOrCreateNode(e.src);
-				src.addUndirectedEdgeToNode(dst, e.weight);
-				
-				//adding stuff back to the PQ
-				INode edgestoadd=nodes.get(e.dst);
-				for (INode n: edgestoadd.getNeighbors())
-					todo.add(new Edge(edgestoadd.getName(),n.getName(),n.getWeight(edgestoadd)));
-			}
-		return graph;
+		return snapshot().spanningForest(new Graph());
 	}
-}
\ No newline at end of file
+}
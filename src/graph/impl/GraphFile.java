@@ -0,0 +1,352 @@
+package graph.impl;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import graph.IGraph;
+
+/**
+ * A binary file format for graphs that can be memory mapped and queried in
+ * place, so loading a graph takes a few mappings instead of parsing text,
+ * and every process that maps the same file shares its pages.
+ *
+ * The file starts with a header of {@value #HEADER_SIZE} bytes, followed by
+ * sections that each start on an 8-byte boundary. All numbers are little-endian.
+ *
+ * <pre>
+ * header       magic "CSRG", version, flags, node count n, edge count m,
+ *              smallest and largest weight, name table slots, and the
+ *              position of every section
+ * offsets      n+1 ints, the CSR row offsets
+ * targets      m ints, sorted within each row
+ * weights      m ints
+ * labels       m bytes, only if some edge has labels
+ * name starts  n+1 ints, where the UTF-8 bytes of each name start
+ * name table   an open-addressing hash table of node ids, -1 for a free slot,
+ *              keyed on the hash of the UTF-8 bytes of the name
+ * name bytes   the UTF-8 bytes of all the names, one after another
+ * </pre>
+ *
+ * The reader only checks the header and the ends of the sections, so a file
+ * that has been tampered with can make queries give wrong answers or throw.
+ * Each section is mapped separately and must be smaller than 2GB.
+ */
+public final class GraphFile
+{
+    /** The first four bytes of every graph file, "CSRG". */
+    static final int MAGIC='C' | 'S'<<8 | 'R'<<16 | 'G'<<24;
+    /** The version of the format written by {@link #write(IGraph, Path)}. */
+    public static final int VERSION=1;
+    static final int HEADER_SIZE=128;
+    private static final int HAS_LABELS=1;
+
+    /**
+     * Write the given graph to the given file, replacing it if it exists.
+     * Node ids are kept.
+     *
+     * The graph is written to a temporary file next to the given one, which
+     * is synced to disk and then moved over it, so a crash or a reader never
+     * sees a file that is only partly written.
+     *
+     * @param graph
+     * @param file
+     * @throws IOException
+     */
+    public static void write(IGraph graph, Path file) throws IOException {
+        CompactGraph g=CompactGraph.of(graph);
+        int n=g.size();
+        int m=g.edgeCount();
+        if (n>1<<29) {
+            throw new IOException("too many nodes for a graph file: "+n);
+        }
+        boolean hasLabels=false;
+        for (int e=0; e<m && !hasLabels; e++) {
+            hasLabels=g.label(e)!=0;
+        }
+        Path dir=file.toAbsolutePath().getParent();
+        Path tmp=Files.createTempFile(dir, file.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel=FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+                write(g, hasLabels, channel);
+                channel.force(true);
+            }
+            Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(tmp);
+            throw e;
+        }
+    }
+
+    private static void write(CompactGraph g, boolean hasLabels, FileChannel channel) throws IOException {
+        int n=g.size();
+        int m=g.edgeCount();
+        Output out=new Output(channel);
+        out.skip(HEADER_SIZE);
+
+        long offsetsPos=out.align();
+        for (int u=0; u<n; u++) {
+            out.putInt(g.begin(u));
+        }
+        out.putInt(m);
+        long targetsPos=out.align();
+        for (int e=0; e<m; e++) {
+            out.putInt(g.target(e));
+        }
+        long weightsPos=out.align();
+        for (int e=0; e<m; e++) {
+            out.putInt(g.weight(e));
+        }
+        long labelsPos=0;
+        if (hasLabels) {
+            labelsPos=out.align();
+            for (int e=0; e<m; e++) {
+                out.put((byte)g.label(e));
+            }
+        }
+
+        // the table is at most half full, so probe runs stay short
+        int slots=Integer.highestOneBit(Math.max(n*2-1, 1))*2;
+        int[] table=new int[slots];
+        Arrays.fill(table, -1);
+        long nameStartsPos=out.align();
+        long nameBytes=0;
+        out.putInt(0);
+        for (int u=0; u<n; u++) {
+            byte[] name=g.name(u).getBytes(StandardCharsets.UTF_8);
+            nameBytes+=name.length;
+            if (nameBytes>Integer.MAX_VALUE) {
+                throw new IOException("the names are too long for a graph file");
+            }
+            out.putInt((int)nameBytes);
+            int i=NameDictionary.hash(name, 0, name.length) & (slots-1);
+            while (table[i]>=0) {
+                i=(i+1) & (slots-1);
+            }
+            table[i]=u;
+        }
+        long nameTablePos=out.align();
+        for (int id : table) {
+            out.putInt(id);
+        }
+        long nameBytesPos=out.align();
+        for (int u=0; u<n; u++) {
+            out.put(g.name(u).getBytes(StandardCharsets.UTF_8));
+        }
+        out.flush();
+
+        ByteBuffer header=ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC).putInt(VERSION).putInt(hasLabels ? HAS_LABELS : 0).putInt(n);
+        header.putLong(m).putInt(g.minWeight()).putInt(g.maxWeight()).putInt(slots).putInt(0);
+        header.putLong(offsetsPos).putLong(targetsPos).putLong(weightsPos).putLong(labelsPos);
+        header.putLong(nameStartsPos).putLong(nameTablePos).putLong(nameBytesPos).putLong(nameBytes);
+        header.clear();
+        while (header.hasRemaining()) {
+            channel.write(header, header.position());
+        }
+    }
+
+    /**
+     * Memory map the given graph file and return a graph that answers queries
+     * straight from the mapped sections. Nothing but the header is read now;
+     * the operating system pages the rest in as it is used.
+     *
+     * @param file
+     * @return
+     * @throws IOException if the file is not a graph file, was written by a
+     * different version of the format, or is cut short
+     */
+    public static CompactGraph map(Path file) throws IOException {
+        try (FileChannel channel=FileChannel.open(file, StandardOpenOption.READ)) {
+            long size=channel.size();
+            if (size<HEADER_SIZE) {
+                throw new IOException(file+" is not a graph file");
+            }
+            ByteBuffer header=channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            if (header.getInt()!=MAGIC) {
+                throw new IOException(file+" is not a graph file");
+            }
+            int version=header.getInt();
+            if (version!=VERSION) {
+                throw new IOException(file+" has version "+version+" of the graph file format, but only version "+
+                        VERSION+" is supported");
+            }
+            int flags=header.getInt();
+            int n=header.getInt();
+            long m=header.getLong();
+            int minWeight=header.getInt();
+            int maxWeight=header.getInt();
+            int slots=header.getInt();
+            header.getInt();
+            long offsetsPos=header.getLong();
+            long targetsPos=header.getLong();
+            long weightsPos=header.getLong();
+            long labelsPos=header.getLong();
+            long nameStartsPos=header.getLong();
+            long nameTablePos=header.getLong();
+            long nameBytesPos=header.getLong();
+            long nameBytes=header.getLong();
+            if (n<0 || m<0 || m>Integer.MAX_VALUE || slots<=0 || Integer.bitCount(slots)!=1) {
+                throw new IOException(file+" has a corrupt header");
+            }
+
+            IntBuffer offsets=section(channel, offsetsPos, (n+1L)*4, size).asIntBuffer();
+            IntBuffer targets=section(channel, targetsPos, m*4, size).asIntBuffer();
+            IntBuffer weights=section(channel, weightsPos, m*4, size).asIntBuffer();
+            ByteBuffer labels=(flags & HAS_LABELS)!=0 ? section(channel, labelsPos, m, size) : null;
+            IntBuffer nameStarts=section(channel, nameStartsPos, (n+1L)*4, size).asIntBuffer();
+            IntBuffer nameTable=section(channel, nameTablePos, slots*4L, size).asIntBuffer();
+            ByteBuffer names=section(channel, nameBytesPos, nameBytes, size);
+            if (offsets.get(0)!=0 || offsets.get(n)!=m || nameStarts.get(0)!=0 || nameStarts.get(n)!=nameBytes) {
+                throw new IOException(file+" is corrupt");
+            }
+            return new CompactGraph(new MappedNameTable(n, nameStarts, nameTable, names),
+                    offsets, targets, weights, labels, minWeight, maxWeight);
+        }
+    }
+
+    private static ByteBuffer section(FileChannel channel, long pos, long length, long size) throws IOException {
+        if (pos<HEADER_SIZE || pos+length>size) {
+            throw new IOException("the section at byte "+pos+" runs past the end of the file");
+        }
+        if (length>Integer.MAX_VALUE) {
+            throw new IOException("the section at byte "+pos+" is too big to map");
+        }
+        return channel.map(FileChannel.MapMode.READ_ONLY, pos, length).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Looks names up in the mapped name sections, decoding a name every time
+     * it is asked for.
+     */
+    private static final class MappedNameTable implements CompactGraph.NameTable
+    {
+        private final int size;
+        private final IntBuffer starts;
+        private final IntBuffer table;
+        private final ByteBuffer bytes;
+
+        MappedNameTable(int size, IntBuffer starts, IntBuffer table, ByteBuffer bytes) {
+            this.size=size;
+            this.starts=starts;
+            this.table=table;
+            this.bytes=bytes;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public String name(int id) {
+            int start=starts.get(id);
+            byte[] name=new byte[starts.get(id+1)-start];
+            for (int i=0; i<name.length; i++) {
+                name[i]=bytes.get(start+i);
+            }
+            return new String(name, StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public int id(String name) {
+            byte[] b=name.getBytes(StandardCharsets.UTF_8);
+            int mask=table.limit()-1;
+            for (int i=NameDictionary.hash(b, 0, b.length) & mask; ; i=(i+1) & mask) {
+                int id=table.get(i);
+                if (id<0) {
+                    return -1;
+                }
+                if (matches(id, b)) {
+                    return id;
+                }
+            }
+        }
+
+        private boolean matches(int id, byte[] b) {
+            int start=starts.get(id);
+            if (starts.get(id+1)-start!=b.length) {
+                return false;
+            }
+            for (int i=0; i<b.length; i++) {
+                if (bytes.get(start+i)!=b[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Buffered little-endian output to a channel that keeps track of the
+     * position in the file.
+     */
+    private static final class Output
+    {
+        private final FileChannel channel;
+        private final ByteBuffer buffer=ByteBuffer.allocateDirect(1<<16).order(ByteOrder.LITTLE_ENDIAN);
+        private long position;
+
+        Output(FileChannel channel) {
+            this.channel=channel;
+        }
+
+        void putInt(int value) throws IOException {
+            if (buffer.remaining()<4) {
+                flush();
+            }
+            buffer.putInt(value);
+            position+=4;
+        }
+
+        void put(byte value) throws IOException {
+            if (!buffer.hasRemaining()) {
+                flush();
+            }
+            buffer.put(value);
+            position++;
+        }
+
+        void put(byte[] values) throws IOException {
+            for (byte b : values) {
+                put(b);
+            }
+        }
+
+        void skip(int count) throws IOException {
+            for (int i=0; i<count; i++) {
+                put((byte)0);
+            }
+        }
+
+        /**
+         * Pad with zeros to the next multiple of 8 and return the position.
+         */
+        long align() throws IOException {
+            while ((position & 7)!=0) {
+                put((byte)0);
+            }
+            return position;
+        }
+
+        void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+
+    private GraphFile() {
+        // only static methods
+    }
+}
@@ -0,0 +1,152 @@
+package graph.impl;
+
+import java.util.Arrays;
+
+import graph.IGraph;
+
+/**
+ * Direction-optimizing breadth-first search (Beamer, Asanovic and Patterson,
+ * "Direction-Optimizing Breadth-First Search", SC 2012).
+ *
+ * The usual top-down step looks at every edge out of the frontier. When the
+ * frontier gets big, which on low-diameter graphs happens after a couple of
+ * levels, most of those edges lead to nodes that have already been visited.
+ * The bottom-up step instead goes through the nodes that have not been visited
+ * yet and checks whether any of their in-neighbors is in the frontier,
+ * stopping at the first one it finds. Switching to bottom-up for the few big
+ * middle levels skips most of the edge checks.
+ *
+ * The visited set and the frontier are bitsets over node ids (one bit per
+ * node in a long[]), so the bottom-up membership tests are a shift and a mask.
+ * The frontier is also kept as a list of ids for the top-down steps.
+ */
+final class HybridBfs
+{
+    /**
+     * Switch to bottom-up once the edges out of the frontier are more than
+     * 1/ALPHA of the edges out of the unvisited nodes.
+     */
+    private static final int ALPHA=14;
+    /**
+     * Switch back to top-down once the frontier is smaller than 1/BETA of the
+     * nodes.
+     */
+    private static final int BETA=24;
+
+    /**
+     * Return the number of hops from the source to every node, with
+     * {@link IGraph#UNREACHABLE} for nodes that cannot be reached.
+     *
+     * @param g
+     * @param source
+     * @return
+     */
+    static int[] hops(CompactGraph g, int source) {
+        int n=g.size();
+        int[] hops=new int[n];
+        Arrays.fill(hops, IGraph.UNREACHABLE);
+        int words=(n+63)>>>6;
+        long[] visited=new long[words];
+        long[] frontierBits=new long[words];
+        long[] nextBits=new long[words];
+        int[] frontier=new int[n];
+        int[] next=new int[n];
+
+        hops[source]=0;
+        set(visited, source);
+        set(frontierBits, source);
+        frontier[0]=source;
+        int frontierSize=1;
+        // edges out of the frontier, and edges out of nodes not yet visited
+        long frontierEdges=degree(g, source);
+        long unvisitedEdges=g.edgeCount()-frontierEdges;
+        boolean bottomUp=false;
+        CompactGraph reverse=null;
+
+        for (int level=1; frontierSize>0; level++) {
+            if (!bottomUp && frontierEdges>unvisitedEdges/ALPHA) {
+                bottomUp=true;
+            } else if (bottomUp && frontierSize<n/BETA) {
+                bottomUp=false;
+            }
+            int nextSize=0;
+            long nextEdges=0;
+            Arrays.fill(nextBits, 0L);
+            if (bottomUp) {
+                if (reverse==null) {
+                    reverse=g.reverse();
+                }
+                // walk the unvisited nodes one 64-bit word at a time
+                for (int w=0; w<words; w++) {
+                    long unvisited=~visited[w];
+                    while (unvisited!=0) {
+                        int v=(w<<6)+Long.numberOfTrailingZeros(unvisited);
+                        unvisited&=unvisited-1;
+                        if (v>=n) {
+                            break;
+                        }
+                        for (int e=reverse.begin(v), end=reverse.end(v); e<end; e++) {
+                            if (get(frontierBits, reverse.target(e))) {
+                                hops[v]=level;
+                                set(nextBits, v);
+                                next[nextSize++]=v;
+                                nextEdges+=degree(g, v);
+                                break;
+                            }
+                        }
+                    }
+                }
+                // only mark the new nodes visited once the whole level is done,
+                // so a node found this level can't act as a parent this level
+                for (int w=0; w<words; w++) {
+                    visited[w]|=nextBits[w];
+                }
+            } else {
+                for (int i=0; i<frontierSize; i++) {
+                    int u=frontier[i];
+                    for (int e=g.begin(u), end=g.end(u); e<end; e++) {
+                        int v=g.target(e);
+                        if (!get(visited, v)) {
+                            set(visited, v);
+                            set(nextBits, v);
+                            hops[v]=level;
+                            next[nextSize++]=v;
+                            nextEdges+=degree(g, v);
+                        }
+                    }
+                }
+            }
+            unvisitedEdges-=nextEdges;
+            frontierEdges=nextEdges;
+
+            long[] tmpBits=frontierBits;
+            frontierBits=nextBits;
+            nextBits=tmpBits;
+            int[] tmp=frontier;
+            frontier=next;
+            next=tmp;
+            frontierSize=nextSize;
+        }
+        return hops;
+    }
+
+    private static int degree(CompactGraph g, int u) {
+        return g.end(u)-g.begin(u);
+    }
+
+    static boolean get(long[] bits, int i) {
+        return (bits[i>>>6] & (1L<<i))!=0;
+    }
+
+    static void set(long[] bits, int i) {
+        bits[i>>>6]|=1L<<i;
+    }
+
+    static void clear(long[] bits, int i) {
+        bits[i>>>6]&=~(1L<<i);
+    }
+
+    private HybridBfs() {
+        // only static methods
+    }
+}
@@ -0,0 +1,168 @@
+package graph.impl;
+
+import java.util.Arrays;
+
+/**
+ * An indexed 4-ary min-heap of node ids ordered by int keys.
+ *
+ * Unlike {@link java.util.PriorityQueue}, every id is in the heap at most once,
+ * and the position of every id is tracked so its key can be lowered in place
+ * (decrease-key). So Dijkstra never has more than one heap entry per node
+ * and never allocates while it runs. A 4-ary heap is shallower than a binary
+ * heap, and the four children of a node sit next to each other in memory.
+ */
+final class IndexedDaryHeap
+{
+    // each node has 1 << SHIFT children
+    private static final int SHIFT=2;
+
+    // heap position -> id
+    private final int[] heap;
+    // id -> heap position, or -1 if the id is not in the heap
+    private final int[] pos;
+    // id -> key
+    private final int[] keys;
+    private int size;
+
+    /**
+     * Create an empty heap for ids from 0 to capacity-1.
+     *
+     * @param capacity
+     */
+    IndexedDaryHeap(int capacity) {
+        heap=new int[capacity];
+        pos=new int[capacity];
+        keys=new int[capacity];
+        Arrays.fill(pos, -1);
+    }
+
+    boolean isEmpty() {
+        return size==0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean contains(int id) {
+        return pos[id]>=0;
+    }
+
+    /**
+     * Return the key the given id was last offered with.
+     *
+     * @param id
+     * @return
+     */
+    int key(int id) {
+        return keys[id];
+    }
+
+    /**
+     * Return the id with the smallest key without removing it.
+     *
+     * @return
+     */
+    int peek() {
+        if (size==0) {
+            throw new IllegalStateException("heap is empty");
+        }
+        return heap[0];
+    }
+
+    /**
+     * Insert the given id with the given key, or lower its key if it is
+     * already in the heap with a larger key.
+     *
+     * @param id
+     * @param key
+     * @return true if the heap changed
+     */
+    boolean offer(int id, int key) {
+        int i=pos[id];
+        if (i<0) {
+            keys[id]=key;
+            siftUp(size++, id);
+            return true;
+        }
+        if (key<keys[id]) {
+            keys[id]=key;
+            siftUp(i, id);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Remove and return the id with the smallest key.
+     *
+     * @return
+     */
+    int poll() {
+        if (size==0) {
+            throw new IllegalStateException("heap is empty");
+        }
+        int min=heap[0];
+        pos[min]=-1;
+        int last=heap[--size];
+        if (size>0) {
+            siftDown(0, last);
+        }
+        return min;
+    }
+
+    /**
+     * Remove every id from the heap so it can be reused.
+     */
+    void clear() {
+        for (int i=0; i<size; i++) {
+            pos[heap[i]]=-1;
+        }
+        size=0;
+    }
+
+    private void siftUp(int i, int id) {
+        int key=keys[id];
+        while (i>0) {
+            int parent=(i-1)>>SHIFT;
+            int p=heap[parent];
+            if (keys[p]<=key) {
+                break;
+            }
+            heap[i]=p;
+            pos[p]=i;
+            i=parent;
+        }
+        heap[i]=id;
+        pos[id]=i;
+    }
+
+    private void siftDown(int i, int id) {
+        int key=keys[id];
+        while (true) {
+            int first=(i<<SHIFT)+1;
+            if (first>=size) {
+                break;
+            }
+            int end=Math.min(first+(1<<SHIFT), size);
+            int best=first;
+            int bestKey=keys[heap[first]];
+            for (int c=first+1; c<end; c++) {
+                int k=keys[heap[c]];
+                if (k<bestKey) {
+                    best=c;
+                    bestKey=k;
+                }
+            }
+            if (key<=bestKey) {
+                break;
+            }
+            int child=heap[best];
+            heap[i]=child;
+            pos[child]=i;
+            i=best;
+        }
+        heap[i]=id;
+        pos[id]=i;
+    }
+}
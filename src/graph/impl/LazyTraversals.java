@@ -0,0 +1,137 @@
+package graph.impl;
+
+import java.util.Arrays;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.IntConsumer;
+import java.util.function.LongConsumer;
+
+import graph.IGraph;
+
+/**
+ * Spliterators that run a traversal over a {@link CompactGraph} one step at
+ * a time, as the consumer asks for the next node. A stream built on one of
+ * them only does as much work as the elements it pulls, so
+ * <code>limit()</code> or <code>findFirst()</code> stop the traversal early.
+ *
+ * The work arrays are allocated up front, when the spliterator is created.
+ */
+final class LazyTraversals
+{
+    private static final int CHARACTERISTICS=Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL;
+
+    /**
+     * Return the ids of the nodes reachable from start in breadth-first order,
+     * the same order as {@link CompactGraph#breadthFirstSearch(int, IntConsumer)}.
+     */
+    static Spliterator.OfInt bfs(CompactGraph g, int start) {
+        boolean[] visited=new boolean[g.size()];
+        int[] queue=new int[g.size()];
+        queue[0]=start;
+        visited[start]=true;
+        return new Spliterators.AbstractIntSpliterator(Long.MAX_VALUE, CHARACTERISTICS) {
+            private int head=0;
+            private int tail=1;
+
+            @Override
+            public boolean tryAdvance(IntConsumer action) {
+                if (head==tail) {
+                    return false;
+                }
+                int u=queue[head++];
+                for (int e=g.begin(u), end=g.end(u); e<end; e++) {
+                    int w=g.target(e);
+                    if (!visited[w]) {
+                        visited[w]=true;
+                        queue[tail++]=w;
+                    }
+                }
+                action.accept(u);
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Return the ids of the nodes reachable from start in the order a
+     * depth-first search discovers them, the same order as
+     * {@link CompactGraph#depthFirstSearch(String, graph.NodeVisitor)}.
+     * Each step moves the cursors forward until the next node is discovered.
+     */
+    static Spliterator.OfInt dfs(CompactGraph g, int start) {
+        boolean[] visited=new boolean[g.size()];
+        int[] stack=new int[g.size()];
+        int[] cursor=new int[g.size()];
+        return new Spliterators.AbstractIntSpliterator(Long.MAX_VALUE, CHARACTERISTICS) {
+            private int top=-1;
+
+            @Override
+            public boolean tryAdvance(IntConsumer action) {
+                if (top<0) {
+                    // the start node has not been handed out yet
+                    visited[start]=true;
+                    stack[0]=start;
+                    cursor[start]=g.begin(start);
+                    top=1;
+                    action.accept(start);
+                    return true;
+                }
+                while (top>0) {
+                    int u=stack[top-1];
+                    int e=cursor[u];
+                    if (e==g.end(u)) {
+                        top--;
+                        continue;
+                    }
+                    cursor[u]=e+1;
+                    int w=g.target(e);
+                    if (!visited[w]) {
+                        visited[w]=true;
+                        stack[top++]=w;
+                        cursor[w]=g.begin(w);
+                        action.accept(w);
+                        return true;
+                    }
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Return the nodes reachable from start in the order Dijkstra's algorithm
+     * settles them, each as a {@link LongMinHeap#pack(int, int) packed}
+     * (cost, id) pair. Uses an indexed heap, so edge weights must not be negative.
+     */
+    static Spliterator.OfLong dijkstra(CompactGraph g, int start) {
+        int[] dist=new int[g.size()];
+        Arrays.fill(dist, IGraph.UNREACHABLE);
+        IndexedDaryHeap heap=new IndexedDaryHeap(g.size());
+        dist[start]=0;
+        heap.offer(start, 0);
+        return new Spliterators.AbstractLongSpliterator(Long.MAX_VALUE, CHARACTERISTICS) {
+            @Override
+            public boolean tryAdvance(LongConsumer action) {
+                if (heap.isEmpty()) {
+                    return false;
+                }
+                int u=heap.poll();
+                int du=dist[u];
+                for (int e=g.begin(u), end=g.end(u); e<end; e++) {
+                    int w=g.target(e);
+                    int cost=du+g.weight(e);
+                    if (cost<dist[w]) {
+                        dist[w]=cost;
+                        heap.offer(w, cost);
+                    }
+                }
+                action.accept(LongMinHeap.pack(du, u));
+                return true;
+            }
+        };
+    }
+
+    private LazyTraversals() {
+        // only static methods
+    }
+}
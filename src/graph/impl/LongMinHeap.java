@@ -0,0 +1,97 @@
+package graph.impl;
+
+import java.util.Arrays;
+
+/**
+ * A binary min-heap of primitive longs.
+ *
+ * The graph algorithms pack a priority into the high 32 bits and a node id
+ * (or edge index) into the low 32 bits of each entry, so comparing the longs
+ * compares the priorities first. Nothing is ever boxed, and the backing array
+ * is reused for the lifetime of the heap.
+ */
+final class LongMinHeap
+{
+    private long[] heap;
+    private int size;
+
+    LongMinHeap(int initialCapacity) {
+        heap=new long[Math.max(initialCapacity, 4)];
+    }
+
+    /**
+     * Pack a priority and a non-negative id into a single heap entry.
+     *
+     * @param priority
+     * @param id
+     * @return
+     */
+    static long pack(int priority, int id) {
+        return ((long)priority << 32) | (id & 0xFFFFFFFFL);
+    }
+
+    static int priorityOf(long entry) {
+        return (int)(entry >> 32);
+    }
+
+    static int idOf(long entry) {
+        return (int)entry;
+    }
+
+    boolean isEmpty() {
+        return size==0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    void clear() {
+        size=0;
+    }
+
+    void push(long entry) {
+        if (size==heap.length) {
+            heap=Arrays.copyOf(heap, size*2);
+        }
+        int i=size++;
+        while (i>0) {
+            int parent=(i-1)>>>1;
+            if (heap[parent]<=entry) {
+                break;
+            }
+            heap[i]=heap[parent];
+            i=parent;
+        }
+        heap[i]=entry;
+    }
+
+    /**
+     * Remove and return the smallest entry.
+     *
+     * @return
+     * @throws IllegalStateException if the heap is empty
+     */
+    long pollMin() {
+        if (size==0) {
+            throw new IllegalStateException("heap is empty");
+        }
+        long min=heap[0];
+        long last=heap[--size];
+        int i=0;
+        int half=size>>>1;
+        while (i<half) {
+            int child=2*i+1;
+            if (child+1<size && heap[child+1]<heap[child]) {
+                child++;
+            }
+            if (last<=heap[child]) {
+                break;
+            }
+            heap[i]=heap[child];
+            i=child;
+        }
+        heap[i]=last;
+        return min;
+    }
+}
@@ -0,0 +1,204 @@
+package graph.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import graph.IGraph;
+
+/**
+ * Keeps track of where Mr X could be as a game of Scotland Yard goes on.
+ *
+ * The possible locations are kept both as a list of ids of a compact
+ * snapshot of the board and as a bitset over those ids. Every move replaces
+ * them with the locations one link away, using only the links of the type of
+ * transportation Mr X was seen to take, so a move costs the links out of the
+ * possible locations, no matter how big the board is or how many moves came
+ * before. A reveal replaces them with the single location Mr X was seen at.
+ *
+ * Every update can be undone, back to the start of the game. The undo entry
+ * of an update is the list of locations it replaced, which the update no
+ * longer needs, so saving it costs nothing and it takes as much room as the
+ * possible locations did.
+ *
+ * The tracker works on the board as it was when the tracker was created.
+ */
+public class MrXTracker
+{
+    private final CompactGraph board;
+    // the ids of the possible locations, and the same ids as a bitset
+    private int[] possible;
+    private long[] bits;
+    // an all-zero bitset for the next move, and room for its ids
+    private long[] nextBits;
+    private final int[] buffer;
+    // the possible locations before each update, for undo
+    private final List<int[]> history=new ArrayList<int[]>();
+    private int moves;
+    // number of moves made before each update, for undo
+    private final List<Integer> movesHistory=new ArrayList<Integer>();
+
+    /**
+     * Start tracking Mr X on the given board, where at the start of the game
+     * he could be at any of the given locations.
+     *
+     * @param board
+     * @param startLocations
+     * @throws IllegalArgumentException if one of the locations is not on the board
+     */
+    public MrXTracker(IGraph board, Collection<String> startLocations) {
+        this.board=CompactGraph.of(board);
+        int words=(this.board.size()+63)>>>6;
+        bits=new long[words];
+        nextBits=new long[words];
+        buffer=new int[this.board.size()];
+        int count=0;
+        for (String location : startLocations) {
+            int id=requireId(location);
+            if (!HybridBfs.get(bits, id)) {
+                HybridBfs.set(bits, id);
+                buffer[count++]=id;
+            }
+        }
+        possible=Arrays.copyOf(buffer, count);
+    }
+
+    /**
+     * Start tracking Mr X on the given board from a known location.
+     *
+     * @param board
+     * @param start
+     */
+    public MrXTracker(IGraph board, String start) {
+        this(board, Collections.singleton(start));
+    }
+
+    private int requireId(String location) {
+        int id=board.id(location);
+        if (id<0) {
+            throw new IllegalArgumentException("no location named "+location);
+        }
+        return id;
+    }
+
+    /**
+     * Record a move by Mr X along a link with one of the given label bits,
+     * such as {@link SYSolver#TAXI}, or {@link IGraph#ANY_EDGE} if the type
+     * of transportation is not known.
+     *
+     * @param transportMask
+     */
+    public void move(int transportMask) {
+        int count=FrontierExpansion.step(board, possible, possible.length, nextBits, buffer, transportMask);
+        clearPossible();
+        long[] tmp=bits;
+        bits=nextBits;
+        nextBits=tmp;
+        save();
+        possible=Arrays.copyOf(buffer, count);
+        moves++;
+    }
+
+    /**
+     * Record a move by Mr X using the given type of transportation, which is
+     * either "any", "taxi", "bus" or "underground".
+     *
+     * @param transportType
+     */
+    public void move(String transportType) {
+        move(SYSolver.transportMask(transportType));
+    }
+
+    /**
+     * Record that Mr X has been seen at the given location.
+     *
+     * @param location
+     * @throws IllegalArgumentException if the location is not on the board
+     */
+    public void reveal(String location) {
+        int id=requireId(location);
+        clearPossible();
+        HybridBfs.set(bits, id);
+        save();
+        possible=new int[] {id};
+    }
+
+    // clear the bits of the current locations, which leaves bits all zero
+    private void clearPossible() {
+        for (int id : possible) {
+            HybridBfs.clear(bits, id);
+        }
+    }
+
+    // the current locations are never changed in place, so they can be kept as they are
+    private void save() {
+        history.add(possible);
+        movesHistory.add(moves);
+    }
+
+    /**
+     * Undo the last move or reveal.
+     *
+     * @return false if there was nothing to undo
+     */
+    public boolean undo() {
+        if (history.isEmpty()) {
+            return false;
+        }
+        clearPossible();
+        possible=history.remove(history.size()-1);
+        for (int id : possible) {
+            HybridBfs.set(bits, id);
+        }
+        moves=movesHistory.remove(movesHistory.size()-1);
+        return true;
+    }
+
+    /**
+     * Return the number of moves Mr X has made so far.
+     *
+     * @return
+     */
+    public int getMoveCount() {
+        return moves;
+    }
+
+    /**
+     * Return the ids of the locations where Mr X could be now, in the board
+     * the tracker was created with.
+     *
+     * @return
+     */
+    public BitSet getPossibleIds() {
+        return BitSet.valueOf(bits);
+    }
+
+    /**
+     * Return the names of the locations where Mr X could be now.
+     *
+     * @return
+     */
+    public Set<String> getPossibleLocations() {
+        Set<String> names=new HashSet<String>();
+        for (int id : possible) {
+            names.add(board.name(id));
+        }
+        return names;
+    }
+
+    /**
+     * Return true if Mr X could be at the given location now.
+     *
+     * @param location
+     * @return
+     */
+    public boolean isPossible(String location) {
+        int id=board.id(location);
+        return id>=0 && HybridBfs.get(bits, id);
+    }
+}
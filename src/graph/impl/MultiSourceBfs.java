@@ -0,0 +1,115 @@
+package graph.impl;
+
+import java.util.Arrays;
+
+import graph.IGraph;
+
+/**
+ * Multi-source breadth-first search (Then et al., "The More the Merrier:
+ * Efficient Multi-Source Graph Traversal", VLDB 2014).
+ *
+ * Runs a BFS from many sources at the same time. Every source gets a bit,
+ * and every node gets a mask with one bit per source: which searches have
+ * seen it, which have it in their current frontier, and which reach it in
+ * the next level. A level looks at the row of every node whose frontier mask
+ * is not empty once, and ORs the whole mask into each neighbor, so the
+ * adjacency scan is shared by all the searches that have the node in their
+ * frontier.
+ *
+ * Masks with more than 64 bits are stored as several longs (lanes) per node,
+ * side by side in one long[]. Sources are processed in batches of at most
+ * {@link #MAX_LANES} lanes to bound the memory used by the masks.
+ */
+final class MultiSourceBfs
+{
+    /** At most this many 64-bit lanes, so 512 sources, run at the same time. */
+    static final int MAX_LANES=8;
+
+    /**
+     * Return the number of hops from every source to every node: row i is
+     * what {@link CompactGraph#bfs(int)} returns for sources[i].
+     *
+     * @param g
+     * @param sources
+     * @return
+     */
+    static int[][] hops(CompactGraph g, int[] sources) {
+        int[][] hops=new int[sources.length][];
+        for (int i=0; i<sources.length; i++) {
+            hops[i]=new int[g.size()];
+            Arrays.fill(hops[i], IGraph.UNREACHABLE);
+        }
+        int batch=MAX_LANES*64;
+        for (int first=0; first<sources.length; first+=batch) {
+            run(g, sources, first, Math.min(sources.length, first+batch), hops);
+        }
+        return hops;
+    }
+
+    /**
+     * Run the sources from first (inclusive) to last (exclusive) together.
+     */
+    private static void run(CompactGraph g, int[] sources, int first, int last, int[][] hops) {
+        int n=g.size();
+        int lanes=(last-first+63)>>>6;
+        long[] seen=new long[n*lanes];
+        long[] visit=new long[n*lanes];
+        long[] next=new long[n*lanes];
+        for (int i=first; i<last; i++) {
+            int s=sources[i];
+            int bit=i-first;
+            seen[s*lanes+(bit>>>6)]|=1L<<bit;
+            visit[s*lanes+(bit>>>6)]|=1L<<bit;
+            hops[i][s]=0;
+        }
+        boolean active=true;
+        for (int level=1; active; level++) {
+            // push every frontier mask along the edges out of its node
+            for (int u=0; u<n; u++) {
+                int base=u*lanes;
+                if (isEmpty(visit, base, lanes)) {
+                    continue;
+                }
+                for (int e=g.begin(u), end=g.end(u); e<end; e++) {
+                    int to=g.target(e)*lanes;
+                    for (int l=0; l<lanes; l++) {
+                        next[to+l]|=visit[base+l];
+                    }
+                }
+            }
+            // keep only the searches that reach a node for the first time
+            active=false;
+            for (int v=0; v<n; v++) {
+                int base=v*lanes;
+                for (int l=0; l<lanes; l++) {
+                    long reached=next[base+l] & ~seen[base+l];
+                    next[base+l]=0;
+                    visit[base+l]=reached;
+                    if (reached==0) {
+                        continue;
+                    }
+                    active=true;
+                    seen[base+l]|=reached;
+                    int offset=first+(l<<6);
+                    while (reached!=0) {
+                        hops[offset+Long.numberOfTrailingZeros(reached)][v]=level;
+                        reached&=reached-1;
+                    }
+                }
+            }
+        }
+    }
+
+    private static boolean isEmpty(long[] masks, int base, int lanes) {
+        for (int l=0; l<lanes; l++) {
+            if (masks[base+l]!=0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private MultiSourceBfs() {
+        // only static methods
+    }
+}
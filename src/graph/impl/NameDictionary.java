@@ -0,0 +1,226 @@
+package graph.impl;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Gives the distinct node names read from a file dense int ids, in order of
+ * first appearance, looking them up by their raw bytes.
+ *
+ * The bytes of every name are appended to one byte array, and an
+ * open-addressing table of ids with linear probing finds a name by hashing
+ * and comparing bytes. A name only becomes a String when somebody asks for
+ * it, so a name that appears on a million edges is decoded once.
+ */
+final class NameDictionary implements CompactGraph.NameTable
+{
+    private static final int FREE=-1;
+
+    // the bytes of name i are bytes[starts[i]..starts[i+1])
+    private byte[] bytes=new byte[1<<12];
+    private int[] starts=new int[65];
+    private int[] hashes=new int[64];
+    private String[] decoded=new String[64];
+    private int size;
+    private int[] table;
+    private int mask;
+
+    NameDictionary() {
+        table=new int[128];
+        Arrays.fill(table, FREE);
+        mask=table.length-1;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Hash the given bytes. {@link GraphFile} stores names in tables built
+     * with this hash, so it must not change.
+     */
+    static int hash(byte[] b, int off, int len) {
+        // FNV-1a, then spread the bits so that nearby hashes use different slots
+        int h=0x811C9DC5;
+        for (int i=off; i<off+len; i++) {
+            h=(h ^ b[i])*0x01000193;
+        }
+        return spread(h);
+    }
+
+    private static int hash(ByteBuffer b, int off, int len) {
+        int h=0x811C9DC5;
+        for (int i=off; i<off+len; i++) {
+            h=(h ^ b.get(i))*0x01000193;
+        }
+        return spread(h);
+    }
+
+    private static int spread(int h) {
+        h*=0x9E3779B9;
+        return h ^ (h>>>16);
+    }
+
+    private boolean equals(int id, byte[] b, int off, int len) {
+        int s=starts[id];
+        if (starts[id+1]-s!=len) {
+            return false;
+        }
+        for (int i=0; i<len; i++) {
+            if (bytes[s+i]!=b[off+i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean equals(int id, ByteBuffer b, int off, int len) {
+        int s=starts[id];
+        if (starts[id+1]-s!=len) {
+            return false;
+        }
+        for (int i=0; i<len; i++) {
+            if (bytes[s+i]!=b.get(off+i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Return the id of the name made of the given bytes, giving it the next id
+     * if it has not been seen before.
+     *
+     * @param b
+     * @param off
+     * @param len
+     * @return
+     */
+    int intern(byte[] b, int off, int len) {
+        int h=hash(b, off, len);
+        int i=h & mask;
+        for (int id=table[i]; id!=FREE; id=table[i]) {
+            if (hashes[id]==h && equals(id, b, off, len)) {
+                return id;
+            }
+            i=(i+1) & mask;
+        }
+        int id=add(i, h, len);
+        System.arraycopy(b, off, bytes, starts[id], len);
+        return id;
+    }
+
+    /**
+     * Return the id of the name made of the bytes at the given absolute
+     * position of the given buffer, giving it the next id if it has not been
+     * seen before. The position of the buffer is not changed.
+     *
+     * @param b
+     * @param off
+     * @param len
+     * @return
+     */
+    int intern(ByteBuffer b, int off, int len) {
+        int h=hash(b, off, len);
+        int i=h & mask;
+        for (int id=table[i]; id!=FREE; id=table[i]) {
+            if (hashes[id]==h && equals(id, b, off, len)) {
+                return id;
+            }
+            i=(i+1) & mask;
+        }
+        int id=add(i, h, len);
+        int s=starts[id];
+        for (int k=0; k<len; k++) {
+            bytes[s+k]=b.get(off+k);
+        }
+        return id;
+    }
+
+    /**
+     * Give the next id to a new name with the given hash, which goes in the
+     * given free slot of the table, and make room for its len bytes, which
+     * the caller copies to bytes[starts[id]..].
+     */
+    private int add(int slot, int h, int len) {
+        int id=size++;
+        if (id==hashes.length) {
+            hashes=Arrays.copyOf(hashes, id*2);
+            decoded=Arrays.copyOf(decoded, id*2);
+            starts=Arrays.copyOf(starts, id*2+1);
+        }
+        int s=starts[id];
+        if (s+len>bytes.length) {
+            bytes=Arrays.copyOf(bytes, Math.max(bytes.length*2, s+len));
+        }
+        starts[id+1]=s+len;
+        hashes[id]=h;
+        table[slot]=id;
+        if (size*4>=table.length*3) {
+            rehash();
+        }
+        return id;
+    }
+
+    /**
+     * Return the id in this dictionary of the name with the given id in the
+     * other dictionary, giving it the next id if it has not been seen before.
+     *
+     * @param other
+     * @param id
+     * @return
+     */
+    int intern(NameDictionary other, int id) {
+        int s=other.starts[id];
+        return intern(other.bytes, s, other.starts[id+1]-s);
+    }
+
+    /**
+     * Return the id of the given name, or -1 if it has not been seen.
+     *
+     * @param name
+     * @return
+     */
+    @Override
+    public int id(String name) {
+        byte[] b=name.getBytes(StandardCharsets.UTF_8);
+        int h=hash(b, 0, b.length);
+        for (int i=h & mask, id=table[i]; id!=FREE; i=(i+1) & mask, id=table[i]) {
+            if (hashes[id]==h && equals(id, b, 0, b.length)) {
+                return id;
+            }
+        }
+        return -1;
+    }
+
+    private void rehash() {
+        table=new int[table.length*2];
+        Arrays.fill(table, FREE);
+        mask=table.length-1;
+        for (int id=0; id<size; id++) {
+            int i=hashes[id] & mask;
+            while (table[i]!=FREE) {
+                i=(i+1) & mask;
+            }
+            table[i]=id;
+        }
+    }
+
+    /**
+     * Return the name with the given id.
+     *
+     * @param id
+     * @return
+     */
+    @Override
+    public String name(int id) {
+        String name=decoded[id];
+        if (name==null) {
+            name=new String(bytes, starts[id], starts[id+1]-starts[id], StandardCharsets.UTF_8);
+            decoded[id]=name;
+        }
+        return name;
+    }
+}
@@ -1,11 +1,13 @@
 package graph.impl;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 
+import graph.IGraph;
 import graph.INode;
 
 /**
@@ -28,6 +30,11 @@ public class Node implements INode
 {
     private String name;
     private Map<INode, Integer> neighbors;
+    // label bits of the edges that have any
+    private Map<INode, Byte> labels;
+    private final int id;
+    // the graph that created this node, which is told about every edge change
+    private final Graph owner;
     
     /**
      * Create a new node with the given name. The newly created node should
@@ -36,8 +43,23 @@ public class Node implements INode
      * @param name
      */
     public Node(String name) {
+        this(name, -1, null);
+    }
+    
+    /**
+     * Create a new node with the given name that belongs to the given graph
+     * and has the given id in that graph.
+     * 
+     * @param name
+     * @param id
+     * @param owner
+     */
+    Node(String name, int id, Graph owner) {
         this.name=name;
+        this.id=id;
+        this.owner=owner;
         neighbors=new HashMap<INode,Integer>();
+        labels=new HashMap<INode,Byte>();
     }
     
     
@@ -50,6 +72,21 @@ public class Node implements INode
     public String getName() {
        return this.name;
     }
+    
+    /**
+     * Return the id of this node in the graph that created it, or -1 if the
+     * node was created on its own.
+     * 
+     * @return
+     */
+    public int getId() {
+        return this.id;
+    }
+    
+    private void edgesChanged() {
+        if (owner!=null)
+            owner.edgesChanged();
+    }
 
     /**
      * Return a collection of nodes that the current node is connected to by an edge.
@@ -60,6 +97,24 @@ public class Node implements INode
         return this.neighbors.keySet();
     }
     
+    /**
+     * Return the neighbors whose edge has one of the label bits in the given
+     * mask, or all neighbors for {@link IGraph#ANY_EDGE}.
+     * 
+     * @param labelMask
+     * @return
+     */
+    public Collection<INode> getNeighbors(int labelMask) {
+        if (labelMask==IGraph.ANY_EDGE)
+            return getNeighbors();
+        List<INode> result=new ArrayList<INode>();
+        for (Map.Entry<INode, Byte> e : labels.entrySet()) {
+            if ((e.getValue() & 0xFF & labelMask)!=0)
+                result.add(e.getKey());
+        }
+        return result;
+    }
+    
     /**
      * Add a directed edge to the given node using the given weight.
      * 
@@ -68,6 +123,7 @@ public class Node implements INode
      */
     public void addDirectedEdgeToNode(INode n, int weight) {
     	neighbors.put(n,weight);
+    	edgesChanged();
     }
     
     /**
@@ -81,6 +137,37 @@ public class Node implements INode
       	addDirectedEdgeToNode(n,weight);
     	n.addDirectedEdgeToNode(this,weight);
     }
+    
+    /**
+     * Add a directed edge to the given node using the given weight, and add
+     * the given bits to the labels of the edge.
+     * 
+     * @param n
+     * @param weight
+     * @param labelBits
+     */
+    public void addDirectedEdgeToNode(INode n, int weight, int labelBits) {
+        byte bits=EdgeLabels.toByte(labelBits);
+        Byte old=labels.get(n);
+        if (old!=null)
+            bits|=old;
+        if (bits!=0)
+            labels.put(n,bits);
+        addDirectedEdgeToNode(n,weight);
+    }
+    
+    /**
+     * Add an undirected edge to the given node using the given weight, and
+     * add the given bits to the labels of the edge in both directions.
+     * 
+     * @param n
+     * @param weight
+     * @param labelBits
+     */
+    public void addUndirectedEdgeToNode(INode n, int weight, int labelBits) {
+        addDirectedEdgeToNode(n,weight,labelBits);
+        n.addDirectedEdgeToNode(this,weight,labelBits);
+    }
 
     /**
      * Remove the directed edge to the given node.
@@ -95,6 +182,8 @@ public class Node implements INode
     	if (!neighbors.containsKey(n))
     		throw new IllegalStateException();
         neighbors.remove(n);
+        labels.remove(n);
+        edgesChanged();
     }
     
     /**
@@ -139,4 +228,20 @@ public class Node implements INode
     	   throw new IllegalStateException();
        return neighbors.get(n);
     }
+    
+    /**
+     * Get the label bits of the edge to the given node.
+     * 
+     * If no such edge exists, throw {@link IllegalStateException}
+     * 
+     * @param n
+     * @return
+     * @throws IllegalStateException
+     */
+    public int getLabels(INode n) throws IllegalStateException{
+        if (!neighbors.containsKey(n))
+            throw new IllegalStateException();
+        Byte bits=labels.get(n);
+        return bits==null ? 0 : bits & 0xFF;
+    }
 }
@@ -0,0 +1,222 @@
+package graph.impl;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.IntConsumer;
+
+import graph.BfsTree;
+import graph.IGraph;
+
+/**
+ * Level-synchronous breadth-first search that expands every level's frontier
+ * in parallel on a {@link ForkJoinPool}.
+ *
+ * The frontier is cut into chunks, one task per chunk. A task claims the
+ * unvisited neighbors of its frontier nodes by setting their bit in an atomic
+ * bitset with compare-and-set, so exactly one task discovers each node, and
+ * it appends the nodes it claims to its own buffer. When all tasks are done,
+ * the buffers are concatenated into the next frontier.
+ */
+final class ParallelBfs
+{
+    // frontiers smaller than this are expanded as a single chunk
+    private static final int MIN_CHUNK=256;
+
+    private final CompactGraph g;
+    private final IntConsumer visit;
+    private final boolean deterministic;
+    private final int[] hops;
+    // in deterministic mode the parent is the smallest id that reaches the node,
+    // so it is kept in an atomic array and lowered with accumulateAndGet
+    private final int[] parents;
+    private final AtomicIntegerArray minParents;
+    // nodes discovered in earlier levels; only changes between levels
+    private final long[] visited;
+    // nodes claimed during the current level
+    private final AtomicLongArray claimed;
+
+    private int[] frontier;
+    private int frontierSize;
+    private int level;
+    private int[][] buffers=new int[0][];
+    private int[] bufferSizes=new int[0];
+
+    private ParallelBfs(CompactGraph g, IntConsumer visit, boolean deterministic) {
+        this.g=g;
+        this.visit=visit;
+        this.deterministic=deterministic;
+        int n=g.size();
+        hops=new int[n];
+        Arrays.fill(hops, IGraph.UNREACHABLE);
+        parents=new int[n];
+        Arrays.fill(parents, -1);
+        minParents=deterministic ? new AtomicIntegerArray(n) : null;
+        visited=new long[(n+63)>>>6];
+        claimed=new AtomicLongArray(visited.length);
+        frontier=new int[n];
+    }
+
+    /**
+     * Run a parallel BFS from the given source.
+     *
+     * @param g
+     * @param source
+     * @param pool
+     * @param visit called with the id of every node reached, or null. In
+     * deterministic mode it is called on the calling thread, level by level and
+     * in increasing id order within a level. Otherwise it is called from the
+     * worker threads, concurrently and in no particular order.
+     * @param deterministic
+     * @return
+     */
+    static BfsTree run(CompactGraph g, int source, ForkJoinPool pool, IntConsumer visit, boolean deterministic) {
+        ParallelBfs bfs=new ParallelBfs(g, visit, deterministic);
+        bfs.search(source, pool);
+        return new BfsTree(source, bfs.hops, bfs.parents);
+    }
+
+    private void search(int source, ForkJoinPool pool) {
+        hops[source]=0;
+        HybridBfs.set(visited, source);
+        frontier[0]=source;
+        frontierSize=1;
+        if (visit!=null) {
+            visit.accept(source);
+        }
+        if (deterministic) {
+            for (int i=0; i<g.size(); i++) {
+                minParents.set(i, Integer.MAX_VALUE);
+            }
+        }
+        int chunkLimit=pool.getParallelism()*8;
+        while (frontierSize>0) {
+            level++;
+            int chunks=Math.max(1, Math.min(chunkLimit, frontierSize/MIN_CHUNK));
+            if (buffers.length<chunks) {
+                buffers=Arrays.copyOf(buffers, chunks);
+                bufferSizes=new int[chunks];
+            }
+            if (chunks==1) {
+                expand(0, 0, frontierSize);
+            } else {
+                pool.invoke(new LevelTask(0, chunks, chunks));
+            }
+            collect(chunks);
+        }
+    }
+
+    /**
+     * Concatenate the buffers into the next frontier and move the claimed
+     * nodes into the visited set.
+     */
+    private void collect(int chunks) {
+        int size=0;
+        for (int c=0; c<chunks; c++) {
+            System.arraycopy(buffers[c], 0, frontier, size, bufferSizes[c]);
+            size+=bufferSizes[c];
+        }
+        frontierSize=size;
+        for (int i=0; i<size; i++) {
+            int v=frontier[i];
+            HybridBfs.set(visited, v);
+            claimed.set(v>>>6, 0L);
+        }
+        if (deterministic) {
+            Arrays.sort(frontier, 0, size);
+            for (int i=0; i<size; i++) {
+                int v=frontier[i];
+                parents[v]=minParents.get(v);
+                if (visit!=null) {
+                    visit.accept(v);
+                }
+            }
+        }
+    }
+
+    /**
+     * Expand the frontier nodes from lo (inclusive) to hi (exclusive) into the
+     * buffer of the given chunk.
+     */
+    private void expand(int chunk, int lo, int hi) {
+        int[] buffer=buffers[chunk];
+        if (buffer==null) {
+            buffer=new int[64];
+        }
+        int size=0;
+        for (int i=lo; i<hi; i++) {
+            int u=frontier[i];
+            for (int e=g.begin(u), end=g.end(u); e<end; e++) {
+                int v=g.target(e);
+                if (HybridBfs.get(visited, v)) {
+                    continue;
+                }
+                if (deterministic) {
+                    minParents.accumulateAndGet(v, u, Math::min);
+                }
+                if (claim(v)) {
+                    hops[v]=level;
+                    if (!deterministic) {
+                        parents[v]=u;
+                        if (visit!=null) {
+                            visit.accept(v);
+                        }
+                    }
+                    if (size==buffer.length) {
+                        buffer=Arrays.copyOf(buffer, size*2);
+                    }
+                    buffer[size++]=v;
+                }
+            }
+        }
+        buffers[chunk]=buffer;
+        bufferSizes[chunk]=size;
+    }
+
+    private boolean claim(int v) {
+        int word=v>>>6;
+        long bit=1L<<v;
+        while (true) {
+            long old=claimed.get(word);
+            if ((old & bit)!=0) {
+                return false;
+            }
+            if (claimed.compareAndSet(word, old, old | bit)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Expands the chunks from lo (inclusive) to hi (exclusive), splitting in
+     * half until there is a single chunk left.
+     */
+    @SuppressWarnings("serial")
+    private final class LevelTask extends RecursiveAction
+    {
+        private final int lo;
+        private final int hi;
+        private final int chunks;
+
+        LevelTask(int lo, int hi, int chunks) {
+            this.lo=lo;
+            this.hi=hi;
+            this.chunks=chunks;
+        }
+
+        @Override
+        protected void compute() {
+            if (hi-lo==1) {
+                // chunk boundaries are spread evenly over the frontier
+                int from=(int)((long)frontierSize*lo/chunks);
+                int to=(int)((long)frontierSize*hi/chunks);
+                expand(lo, from, to);
+                return;
+            }
+            int mid=(lo+hi)>>>1;
+            invokeAll(new LevelTask(lo, mid, chunks), new LevelTask(mid, hi, chunks));
+        }
+    }
+}
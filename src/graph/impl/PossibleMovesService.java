@@ -0,0 +1,195 @@
+package graph.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.swing.SwingUtilities;
+
+import graph.IGraph;
+
+/**
+ * Computes the possible moves of Mr X (see
+ * {@link SYSolver#getNextFivePossibleMoves(IGraph, String, List)}) off the
+ * Swing event thread, and remembers the results.
+ *
+ * Results are keyed by the start location, whether transport types are used,
+ * and the transport types themselves (only when they are used). The most
+ * recently used results are kept, up to a fixed number. Asking for a result
+ * that is not ready yet starts computing it on a background executor, unless
+ * that is already happening, and the given callback is run on the event
+ * thread once it is ready.
+ *
+ * The moves are computed on a compact snapshot of the board taken when the
+ * service is created, so later changes to the board are not seen.
+ */
+public class PossibleMovesService
+{
+    /** Number of results kept by default. */
+    public static final int DEFAULT_CAPACITY=256;
+
+    private final IGraph board;
+    private final Executor executor;
+    private final Map<Key, Map<Integer, Set<String>>> cache;
+    // results being computed, with the callbacks waiting for them
+    private final Map<Key, List<Runnable>> pending=new HashMap<Key, List<Runnable>>();
+
+    /**
+     * Create a service that keeps up to {@link #DEFAULT_CAPACITY} results and
+     * computes on a single background daemon thread.
+     *
+     * @param board
+     */
+    public PossibleMovesService(IGraph board) {
+        this(board, DEFAULT_CAPACITY, defaultExecutor());
+    }
+
+    /**
+     * Create a service that keeps up to the given number of results and
+     * computes on the given executor.
+     *
+     * @param board
+     * @param capacity
+     * @param executor
+     */
+    public PossibleMovesService(IGraph board, int capacity, Executor executor) {
+        if (capacity<1) {
+            throw new IllegalArgumentException("capacity must be positive: "+capacity);
+        }
+        this.board=CompactGraph.of(board);
+        this.executor=executor;
+        // access order, so the eldest entry is the least recently used
+        this.cache=new LinkedHashMap<Key, Map<Integer, Set<String>>>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Map<Integer, Set<String>>> eldest) {
+                return size()>capacity;
+            }
+        };
+    }
+
+    private static ExecutorService defaultExecutor() {
+        return Executors.newSingleThreadExecutor(r -> {
+            Thread t=new Thread(r, "possible-moves");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Return the possible moves for the given query if they are known, and
+     * null otherwise. In that case they are computed in the background, and
+     * onReady, if not null, is run on the Swing event thread when they are
+     * ready, so a call from there returns them.
+     *
+     * @param start
+     * @param transportTypes ignored unless useTransportTypes is true
+     * @param useTransportTypes
+     * @param onReady
+     * @return
+     * @throws java.util.concurrent.RejectedExecutionException if the executor
+     * does not accept the computation
+     */
+    public Map<Integer, Set<String>> get(String start, List<String> transportTypes, boolean useTransportTypes, Runnable onReady) {
+        Key key=new Key(start, useTransportTypes ? new ArrayList<String>(transportTypes) : null);
+        synchronized (this) {
+            Map<Integer, Set<String>> moves=cache.get(key);
+            if (moves!=null) {
+                return moves;
+            }
+            List<Runnable> callbacks=pending.get(key);
+            if (callbacks!=null) {
+                if (onReady!=null) {
+                    callbacks.add(onReady);
+                }
+                return null;
+            }
+            callbacks=new ArrayList<Runnable>();
+            if (onReady!=null) {
+                callbacks.add(onReady);
+            }
+            pending.put(key, callbacks);
+        }
+        try {
+            executor.execute(() -> compute(key));
+        } catch (RuntimeException e) {
+            // nothing will ever finish the computation, so the next request
+            // has to start it again
+            synchronized (this) {
+                pending.remove(key);
+            }
+            throw e;
+        }
+        synchronized (this) {
+            // the executor may have run the computation right away
+            return cache.get(key);
+        }
+    }
+
+    private void compute(Key key) {
+        Map<Integer, Set<String>> moves;
+        try {
+            moves=key.types==null
+                ? SYSolver.getNextFivePossibleMoves(board, key.start)
+                : SYSolver.getNextFivePossibleMoves(board, key.start, key.types);
+            moves=Collections.unmodifiableMap(moves);
+        } catch (RuntimeException e) {
+            // forget about it, so the next request tries again
+            synchronized (this) {
+                pending.remove(key);
+            }
+            throw e;
+        }
+        List<Runnable> callbacks;
+        synchronized (this) {
+            cache.put(key, moves);
+            callbacks=pending.remove(key);
+        }
+        for (Runnable r : callbacks) {
+            SwingUtilities.invokeLater(r);
+        }
+    }
+
+    /**
+     * Return the number of results currently remembered.
+     *
+     * @return
+     */
+    public synchronized int size() {
+        return cache.size();
+    }
+
+    private static final class Key
+    {
+        final String start;
+        // null if transport types are not used
+        final List<String> types;
+
+        Key(String start, List<String> types) {
+            this.start=start;
+            this.types=types;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other=(Key)o;
+            return start.equals(other.start) && (types==null ? other.types==null : types.equals(other.types));
+        }
+
+        @Override
+        public int hashCode() {
+            return start.hashCode()*31+(types==null ? 0 : types.hashCode());
+        }
+    }
+}
@@ -4,10 +4,11 @@ import java.awt.Point;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.BitSet;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Scanner;
 import java.util.Set;
 
 import graph.IGraph;
@@ -15,6 +16,13 @@ import graph.INode;
 
 public class SYSolver
 {
+    /** Edge label bit for a taxi link. */
+    public static final int TAXI=1;
+    /** Edge label bit for a bus link. */
+    public static final int BUS=2;
+    /** Edge label bit for an underground link. */
+    public static final int UNDERGROUND=4;
+    
     /**
      * Read a Scotland Yard graph file from an input stream.
      * The file contains a header line with the number of locations
@@ -49,27 +57,30 @@ public class SYSolver
     public static IGraph readGraphFromFile(InputStream in) throws IOException
     {
         IGraph g=new Graph();
-        Scanner scan=new Scanner(in);
-        int numNodes=scan.nextInt();
-        int numEdges=scan.nextInt();
-        for (int i=0; i<numEdges; i++) {
-            String srcName=scan.next();
-            String dstName=scan.next();
-            String transportType=scan.next();
-            int transportTypeInt = 0;
-            if (transportType.equals("T")){
-                transportTypeInt = 1;
-            } else if (transportType.equals("B")){
-                transportTypeInt = 2;
-            } else if (transportType.equals("U")){
-                transportTypeInt = 4;
+        ByteTokenizer tokens=new ByteTokenizer(in);
+        try {
+            NameDictionary names=new NameDictionary();
+            int numNodes=tokens.nextInt();
+            int numEdges=tokens.nextInt();
+            for (int i=0; i<numEdges; i++) {
+                INode src=EdgeListReader.node(g, names, tokens.nextName(names));
+                INode dst=EdgeListReader.node(g, names, tokens.nextName(names));
+                byte transportType=tokens.nextByte();
+                int transportTypeInt = 0;
+                if (transportType=='T'){
+                    transportTypeInt = TAXI;
+                } else if (transportType=='B'){
+                    transportTypeInt = BUS;
+                } else if (transportType=='U'){
+                    transportTypeInt = UNDERGROUND;
+                }
+                // every move costs 1; the type of transportation is a label, and
+                // the labels of several links between the same two locations add up
+                src.addUndirectedEdgeToNode(dst, 1, transportTypeInt);
             }
-            INode src=g.getOrCreateNode(srcName);
-            INode dst=g.getOrCreateNode(dstName);
-            // TODO: check for a connection here
-            src.addUndirectedEdgeToNode(dst, transportTypeInt);
+        } finally {
+            tokens.close();
         }
-        scan.close();
         return g;
     }
     
@@ -110,15 +121,18 @@ public class SYSolver
      */
     public static Map<String,Point> readPositionPoints(String filename) throws IOException {
         Map<String,Point> map=new HashMap<String,Point>();
-        Scanner scan=new Scanner(new FileInputStream(filename));
-        int numPoints=scan.nextInt();
-        for (int i=0; i<numPoints; i++) {
-            String num=scan.next();
-            int x=scan.nextInt();
-            int y=scan.nextInt();
-            map.put(num, new Point(x,y));
+        ByteTokenizer tokens=new ByteTokenizer(new FileInputStream(filename));
+        try {
+            int numPoints=tokens.nextInt();
+            for (int i=0; i<numPoints; i++) {
+                String num=tokens.next();
+                int x=tokens.nextInt();
+                int y=tokens.nextInt();
+                map.put(num, new Point(x,y));
+            }
+        } finally {
+            tokens.close();
         }
-        scan.close();
         return map;
     }
     
@@ -135,7 +149,7 @@ public class SYSolver
      */
     public static Map<Integer, Set<String>> getNextFivePossibleMoves(IGraph g, String start)
     {
-        throw new UnsupportedOperationException("Implement this method");
+        return possibleMoves(g, g.stepFrontiers(startSet(g, start), 5));
     }
     
     /**
@@ -159,10 +173,64 @@ public class SYSolver
      * @return
      */
     public static Map<Integer,Set<String>> getNextFivePossibleMoves(IGraph g, String start, List<String> transportTypes) {
-        throw new UnsupportedOperationException("Implement this method");
+        if (transportTypes.size()!=5) {
+            throw new IllegalArgumentException("expected 5 transport types but got "+transportTypes.size());
+        }
+        int[] masks=new int[5];
+        for (int i=0; i<masks.length; i++) {
+            masks[i]=transportMask(transportTypes.get(i));
+        }
+        return possibleMoves(g, g.stepFrontiers(startSet(g, start), 5, masks));
     }
     
+    /**
+     * Return the edge label bits for the given transport type, which is
+     * either "any", "taxi", "bus" or "underground".
+     * 
+     * @param transportType
+     * @return
+     */
+    public static int transportMask(String transportType) {
+        switch (transportType) {
+        case "any":
+            return IGraph.ANY_EDGE;
+        case "taxi":
+            return TAXI;
+        case "bus":
+            return BUS;
+        case "underground":
+            return UNDERGROUND;
+        default:
+            throw new IllegalArgumentException("unknown transport type "+transportType);
+        }
+    }
     
+    private static BitSet startSet(IGraph g, String start) {
+        int id=g.getNodeId(start);
+        if (id<0) {
+            throw new IllegalArgumentException("no location named "+start);
+        }
+        BitSet set=new BitSet();
+        set.set(id);
+        return set;
+    }
+    
+    /**
+     * Turn the frontier after each move into the names of the locations in it,
+     * keyed by move number starting at 1.
+     */
+    private static Map<Integer,Set<String>> possibleMoves(IGraph g, BitSet[] frontiers) {
+        Map<Integer,Set<String>> moves=new HashMap<Integer,Set<String>>();
+        for (int i=0; i<frontiers.length; i++) {
+            Set<String> names=new HashSet<String>();
+            for (int id=frontiers[i].nextSetBit(0); id>=0; id=frontiers[i].nextSetBit(id+1)) {
+                names.add(g.getNodeById(id).getName());
+            }
+            moves.put(i+1, names);
+        }
+        return moves;
+    }
+
 
     private SYSolver() {
         // private constructor to prevent creating instances
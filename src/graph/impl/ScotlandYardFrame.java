@@ -34,6 +34,7 @@ import javax.swing.JPanel;
 import javax.swing.JPopupMenu;
 
 import graph.IGraph;
+import graph.SpatialIndex;
 
 @SuppressWarnings("serial")
 public class ScotlandYardFrame extends JFrame
@@ -46,8 +47,12 @@ public class ScotlandYardFrame extends JFrame
     // Map from location names (such as "1") to their (x, y) coordinates on the screen
     // Use the built-in Point class in Java
     private Map<String,Point> pointMap;
+    // spatial index over pointMap, for finding the location closest to a click
+    private SpatialIndex locations;
     // the graph
     private IGraph graph;
+    // computes the possible moves in the background and remembers them
+    private PossibleMovesService moveService;
     // map of moves; key is the move number (i.e. 1, 2, 3, etc) 
     // and the value is the set of possible locations where Mr X could be
     // this will be updated whenever we change the number of moves
@@ -77,8 +82,10 @@ public class ScotlandYardFrame extends JFrame
         final Image img=ImageIO.read(new File("files/sybig.png"));
         // read the map of locations to points
         pointMap=SYSolver.readPositionPoints("files/scotpos.txt");
+        locations=new SpatialIndex(pointMap);
         // read the graph
         graph=SYSolver.readGraphFromFile(new FileInputStream("files/scotmap.txt"));
+        moveService=new PossibleMovesService(graph);
         
         canvas=new JPanel() {
             private static final long serialVersionUID = 1L;
@@ -90,12 +97,12 @@ public class ScotlandYardFrame extends JFrame
                 g.drawImage(img, 0, 0, null);
                 
                 if (startNode != null) {
-                    if (useTransportTypes){
-                        // compute the next 5 possible moves paying attention to the transport types
-                        moves=SYSolver.getNextFivePossibleMoves(graph, startNode, transportTypes);
-                    } else {
-                        // compute next 5 possible movies not paying attention to the transport types
-                        moves=SYSolver.getNextFivePossibleMoves(graph, startNode);
+                    // look up the next 5 possible moves, paying attention to the transport
+                    // types or not; if they aren't ready yet they are computed in the
+                    // background, and we get repainted when they are
+                    Map<Integer, Set<String>> ready=moveService.get(startNode, transportTypes, useTransportTypes, this::repaint);
+                    if (ready != null) {
+                        moves=ready;
                     }
                 }
                 
@@ -248,6 +255,7 @@ public class ScotlandYardFrame extends JFrame
                             // we've found the menu 
                             transportTypes.set(i, transportType);
                             System.out.printf("move number %d uses transport type %s\n", i, transportType);
+                            canvas.repaint();
                             break;
                         }
                     }
@@ -265,8 +273,9 @@ public class ScotlandYardFrame extends JFrame
                 Point clicked=e.getPoint();
                 System.out.printf("clicked map at (%.1f, %.1f)\n", clicked.getX(), clicked.getY());
                     
-                // TODO: set the instance variable startNode to the closest point
+                // set the instance variable startNode to the closest point
                 // to where you just clicked
+                startNode=locations.nearest(clicked);
                 
                 // Finally, redraw 
                 canvas.repaint();
@@ -0,0 +1,377 @@
+package graph.impl;
+
+import java.util.Arrays;
+
+import graph.DijkstraEngine;
+import graph.Heuristic;
+import graph.IGraph;
+
+/**
+ * The shortest path engines that run over the arrays of a {@link CompactGraph}.
+ *
+ * Every method returns an int array of costs indexed by node id, with
+ * {@link IGraph#UNREACHABLE} for nodes that cannot be reached. Edge weights
+ * must not be negative; the bucket queues check this, the heaps just give
+ * wrong answers.
+ */
+final class ShortestPaths
+{
+    /** {@link DijkstraEngine#AUTO} uses Dial's buckets up to this weight. */
+    static final int DIAL_MAX_WEIGHT=255;
+    /** {@link DijkstraEngine#AUTO} uses a radix heap up to this weight. */
+    static final int RADIX_MAX_WEIGHT=1<<20;
+
+    /**
+     * Run Dijkstra's algorithm from the given source using the given engine.
+     *
+     * @param g
+     * @param source
+     * @param engine
+     * @return
+     */
+    static int[] dijkstra(CompactGraph g, int source, DijkstraEngine engine) {
+        switch (engine) {
+        case LAZY_BINARY_HEAP:
+            return lazyBinaryHeap(g, source);
+        case INDEXED_DARY_HEAP:
+            return indexedHeap(g, source);
+        case DIAL_BUCKETS:
+            return dial(g, source);
+        case RADIX_HEAP:
+            return radixHeap(g, source);
+        case AUTO:
+            return dijkstra(g, source, choose(g));
+        default:
+            throw new IllegalArgumentException("unknown engine "+engine);
+        }
+    }
+
+    /**
+     * Pick the engine {@link DijkstraEngine#AUTO} stands for, based on the range
+     * of edge weights in the given graph.
+     *
+     * @param g
+     * @return
+     */
+    static DijkstraEngine choose(CompactGraph g) {
+        if (g.minWeight()<0) {
+            // the bucket queues need non-negative weights
+            return DijkstraEngine.INDEXED_DARY_HEAP;
+        }
+        if (g.maxWeight()<=DIAL_MAX_WEIGHT) {
+            return DijkstraEngine.DIAL_BUCKETS;
+        }
+        if (g.maxWeight()<=RADIX_MAX_WEIGHT) {
+            return DijkstraEngine.RADIX_HEAP;
+        }
+        return DijkstraEngine.INDEXED_DARY_HEAP;
+    }
+
+    private static void requireNonNegativeWeights(CompactGraph g) {
+        if (g.minWeight()<0) {
+            throw new IllegalArgumentException("bucket queues need non-negative weights, but the graph has weight "+g.minWeight());
+        }
+    }
+
+    private static int[] unreachable(int n) {
+        int[] dist=new int[n];
+        Arrays.fill(dist, IGraph.UNREACHABLE);
+        return dist;
+    }
+
+    /**
+     * Dijkstra with a binary heap of packed (cost, id) longs and lazy deletion.
+     */
+    static int[] lazyBinaryHeap(CompactGraph g, int source) {
+        int[] dist=unreachable(g.size());
+        boolean[] settled=new boolean[g.size()];
+        LongMinHeap heap=new LongMinHeap(g.size());
+        dist[source]=0;
+        heap.push(LongMinHeap.pack(0, source));
+        while (!heap.isEmpty()) {
+            int u=LongMinHeap.idOf(heap.pollMin());
+            if (settled[u]) {
+                continue;
+            }
+            settled[u]=true;
+            for (int e=g.begin(u), end=g.end(u); e<end; e++) {
+                int w=g.target(e);
+                int cost=dist[u]+g.weight(e);
+                if (cost<dist[w]) {
+                    dist[w]=cost;
+                    heap.push(LongMinHeap.pack(cost, w));
+                }
+            }
+        }
+        return dist;
+    }
+
+    /**
+     * Dijkstra with an indexed 4-ary heap and decrease-key. A node is in the
+     * heap at most once, and once it has been polled its cost is final, so
+     * there is no need for a separate settled set.
+     */
+    static int[] indexedHeap(CompactGraph g, int source) {
+        int[] dist=unreachable(g.size());
+        IndexedDaryHeap heap=new IndexedDaryHeap(g.size());
+        dist[source]=0;
+        heap.offer(source, 0);
+        while (!heap.isEmpty()) {
+            int u=heap.poll();
+            int du=dist[u];
+            for (int e=g.begin(u), end=g.end(u); e<end; e++) {
+                int w=g.target(e);
+                int cost=du+g.weight(e);
+                if (cost<dist[w]) {
+                    dist[w]=cost;
+                    heap.offer(w, cost);
+                }
+            }
+        }
+        return dist;
+    }
+
+    /**
+     * Dijkstra from source that stops as soon as target is settled, and
+     * returns the ids of the nodes on a cheapest path from source to target,
+     * or null if target cannot be reached. The path is rebuilt by following
+     * a predecessor array back from the target.
+     */
+    static int[] pointToPoint(CompactGraph g, int source, int target) {
+        int[] dist=unreachable(g.size());
+        int[] pred=new int[g.size()];
+        IndexedDaryHeap heap=new IndexedDaryHeap(g.size());
+        dist[source]=0;
+        pred[source]=-1;
+        heap.offer(source, 0);
+        while (!heap.isEmpty()) {
+            int u=heap.poll();
+            if (u==target) {
+                return walkBack(pred, target);
+            }
+            int du=dist[u];
+            for (int e=g.begin(u), end=g.end(u); e<end; e++) {
+                int w=g.target(e);
+                int cost=du+g.weight(e);
+                if (cost<dist[w]) {
+                    dist[w]=cost;
+                    pred[w]=u;
+                    heap.offer(w, cost);
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * A* search from source to target. The heap is ordered by cost so far plus
+     * the heuristic estimate of the cost still to go, so nodes that lead away
+     * from the target are put off, usually for good. Each estimate is computed
+     * once per node and cached. If the heuristic is admissible but not
+     * consistent, a node can come out of the heap and later be reached more
+     * cheaply; it is then simply put back in.
+     */
+    static int[] aStar(CompactGraph g, int source, int target, Heuristic h) {
+        int[] dist=unreachable(g.size());
+        int[] pred=new int[g.size()];
+        int[] estimate=new int[g.size()];
+        Arrays.fill(estimate, -1);
+        IndexedDaryHeap heap=new IndexedDaryHeap(g.size());
+        dist[source]=0;
+        pred[source]=-1;
+        heap.offer(source, 0);
+        while (!heap.isEmpty()) {
+            int u=heap.poll();
+            if (u==target) {
+                return walkBack(pred, target);
+            }
+            int du=dist[u];
+            for (int e=g.begin(u), end=g.end(u); e<end; e++) {
+                int w=g.target(e);
+                int cost=du+g.weight(e);
+                if (cost<dist[w]) {
+                    dist[w]=cost;
+                    pred[w]=u;
+                    if (estimate[w]<0) {
+                        estimate[w]=h.estimate(w, target);
+                    }
+                    heap.offer(w, cost+estimate[w]);
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Follow the predecessor array back from the given node (where -1 marks the
+     * start) and return the ids from the start to the given node.
+     */
+    static int[] walkBack(int[] pred, int node) {
+        int length=0;
+        for (int u=node; u>=0; u=pred[u]) {
+            length++;
+        }
+        int[] path=new int[length];
+        for (int u=node; u>=0; u=pred[u]) {
+            path[--length]=u;
+        }
+        return path;
+    }
+
+    /**
+     * Dial's algorithm. Bucket <code>d % (maxWeight+1)</code> holds the nodes
+     * whose tentative cost is d; since no relaxation can reach further than
+     * maxWeight past the current cost, the buckets can be reused in a circle.
+     * Nodes whose cost has dropped since they were put in a bucket are skipped
+     * when their stale entry comes out.
+     */
+    static int[] dial(CompactGraph g, int source) {
+        requireNonNegativeWeights(g);
+        int[] dist=unreachable(g.size());
+        int buckets=g.maxWeight()+1;
+        int[] head=new int[buckets];
+        Arrays.fill(head, -1);
+        EntryPool pool=new EntryPool(g.size());
+        dist[source]=0;
+        head[0]=pool.allocate(source, 0, -1);
+        int pending=1;
+        for (int d=0; pending>0; d++) {
+            int b=d%buckets;
+            while (head[b]>=0) {
+                int entry=head[b];
+                head[b]=pool.next[entry];
+                pending--;
+                int u=pool.node[entry];
+                pool.release(entry);
+                if (dist[u]!=d) {
+                    continue;
+                }
+                for (int e=g.begin(u), end=g.end(u); e<end; e++) {
+                    int w=g.target(e);
+                    int cost=d+g.weight(e);
+                    if (cost<dist[w]) {
+                        dist[w]=cost;
+                        int nb=cost%buckets;
+                        head[nb]=pool.allocate(w, cost, head[nb]);
+                        pending++;
+                    }
+                }
+            }
+        }
+        return dist;
+    }
+
+    /**
+     * Dijkstra with a radix heap. Bucket 0 holds entries whose cost equals the
+     * last cost removed, and bucket i holds entries whose cost first differs
+     * from it in bit i-1. When bucket 0 runs dry, the first non-empty bucket is
+     * emptied into the lower buckets around its smallest cost. This only works
+     * because Dijkstra removes costs in increasing order.
+     */
+    static int[] radixHeap(CompactGraph g, int source) {
+        requireNonNegativeWeights(g);
+        int[] dist=unreachable(g.size());
+        int[] head=new int[33];
+        Arrays.fill(head, -1);
+        EntryPool pool=new EntryPool(g.size());
+        int last=0;
+        dist[source]=0;
+        head[0]=pool.allocate(source, 0, -1);
+        int pending=1;
+        while (pending>0) {
+            if (head[0]<0) {
+                int i=1;
+                while (head[i]<0) {
+                    i++;
+                }
+                int min=Integer.MAX_VALUE;
+                for (int entry=head[i]; entry>=0; entry=pool.next[entry]) {
+                    min=Math.min(min, pool.key[entry]);
+                }
+                last=min;
+                int entry=head[i];
+                head[i]=-1;
+                while (entry>=0) {
+                    int next=pool.next[entry];
+                    int b=radixBucket(pool.key[entry], last);
+                    pool.next[entry]=head[b];
+                    head[b]=entry;
+                    entry=next;
+                }
+            }
+            int entry=head[0];
+            head[0]=pool.next[entry];
+            pending--;
+            int u=pool.node[entry];
+            int du=pool.key[entry];
+            pool.release(entry);
+            if (dist[u]!=du) {
+                continue;
+            }
+            for (int e=g.begin(u), end=g.end(u); e<end; e++) {
+                int w=g.target(e);
+                int cost=du+g.weight(e);
+                if (cost<dist[w]) {
+                    dist[w]=cost;
+                    int b=radixBucket(cost, last);
+                    head[b]=pool.allocate(w, cost, head[b]);
+                    pending++;
+                }
+            }
+        }
+        return dist;
+    }
+
+    private static int radixBucket(int key, int last) {
+        return key==last ? 0 : 32-Integer.numberOfLeadingZeros(key ^ last);
+    }
+
+    /**
+     * Singly-linked list entries for the bucket queues, stored in parallel int
+     * arrays. Released entries go on a free list and are reused, so the pool
+     * only grows to the largest number of entries queued at the same time.
+     */
+    private static final class EntryPool
+    {
+        int[] node;
+        int[] key;
+        int[] next;
+        private int used;
+        private int free=-1;
+
+        EntryPool(int capacity) {
+            capacity=Math.max(capacity, 4);
+            node=new int[capacity];
+            key=new int[capacity];
+            next=new int[capacity];
+        }
+
+        int allocate(int n, int k, int nextEntry) {
+            int entry;
+            if (free>=0) {
+                entry=free;
+                free=next[entry];
+            } else {
+                if (used==node.length) {
+                    node=Arrays.copyOf(node, used*2);
+                    key=Arrays.copyOf(key, used*2);
+                    next=Arrays.copyOf(next, used*2);
+                }
+                entry=used++;
+            }
+            node[entry]=n;
+            key[entry]=k;
+            next[entry]=nextEntry;
+            return entry;
+        }
+
+        void release(int entry) {
+            next[entry]=free;
+            free=entry;
+        }
+    }
+
+    private ShortestPaths() {
+        // only static methods
+    }
+}
@@ -0,0 +1,160 @@
+package junit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.FileInputStream;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import graph.GraphFactories;
+import graph.IGraph;
+import graph.INode;
+import graph.NodeVisitor;
+import graph.impl.CompactGraph;
+import graph.impl.Graph;
+
+public class TestCompactGraph
+{
+    private static IGraph makeBfs2() {
+        IGraph g = new Graph();
+        String[][] edges = {
+                {"A", "B"}, {"A", "C"}, {"A", "D"}, {"B", "E"},
+                {"C", "E"}, {"D", "E"}, {"E", "F"}, {"F", "G"}
+        };
+        for (String[] e : edges) {
+            g.getOrCreateNode(e[0]).addUndirectedEdgeToNode(g.getOrCreateNode(e[1]), 1);
+        }
+        return g;
+    }
+
+    @Test
+    public void testFreezeKeepsNodesAndEdges() throws Exception
+    {
+        IGraph graph = GraphFactories.createUndirectedWeightedGraphFromEdgeList(new FileInputStream("tests/dijkstra1.txt"));
+        IGraph g = new CompactGraph(graph);
+        assertEquals(graph.getAllNodes().size(), g.getAllNodes().size());
+        for (INode n : graph.getAllNodes()) {
+            INode c = g.getOrCreateNode(n.getName());
+            assertEquals(n.getName(), c.getName());
+            assertEquals(n.getNeighbors().size(), c.getNeighbors().size());
+            for (INode dst : n.getNeighbors()) {
+                assertTrue(c.hasEdge(g.getOrCreateNode(dst.getName())));
+                assertEquals(n.getWeight(dst), c.getWeight(g.getOrCreateNode(dst.getName())));
+            }
+        }
+        assertFalse(g.getOrCreateNode("A").hasEdge(g.getOrCreateNode("E")));
+    }
+
+    @Test
+    public void testLabels()
+    {
+        IGraph graph = makeBfs2();
+        graph.getOrCreateNode("A").addUndirectedEdgeToNode(graph.getOrCreateNode("B"), 1, 0x81);
+        graph.getOrCreateNode("A").addDirectedEdgeToNode(graph.getOrCreateNode("D"), 1, 2);
+        CompactGraph g = new CompactGraph(graph);
+        INode a = g.getOrCreateNode("A");
+        assertEquals(0x81, a.getLabels(g.getOrCreateNode("B")));
+        assertEquals(0x81, g.getOrCreateNode("B").getLabels(a));
+        assertEquals(2, a.getLabels(g.getOrCreateNode("D")));
+        assertEquals(0, a.getLabels(g.getOrCreateNode("C")));
+        assertEquals(1, a.getNeighbors(0x80).size());
+        assertEquals("B", a.getNeighbors(0x80).iterator().next().getName());
+        assertEquals(2, a.getNeighbors(0x82).size());
+        assertEquals(3, a.getNeighbors(IGraph.ANY_EDGE).size());
+        // the spanning tree keeps the labels of its edges
+        IGraph mst = g.primJarnik();
+        assertEquals(0x81, mst.getOrCreateNode("A").getLabels(mst.getOrCreateNode("B")));
+    }
+
+    @Test
+    public void testImmutable() throws Exception
+    {
+        IGraph g = new CompactGraph(makeBfs2());
+        assertTrue(g.containsNode("A"));
+        assertFalse(g.containsNode("Z"));
+        try {
+            g.getOrCreateNode("Z");
+            fail("Should have thrown an exception");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+        try {
+            g.getOrCreateNode("A").addDirectedEdgeToNode(g.getOrCreateNode("G"), 1);
+            fail("Should have thrown an exception");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testDijkstra() throws Exception
+    {
+        IGraph g = new CompactGraph(GraphFactories.createUndirectedWeightedGraphFromEdgeList(new FileInputStream("tests/dijkstra1.txt")));
+        Map<INode, Integer> shortPaths = g.dijkstra("A");
+
+        assertEquals(7, shortPaths.size());
+        assertEquals(0, (int)shortPaths.get(g.getOrCreateNode("A")));
+        assertEquals(2, (int)shortPaths.get(g.getOrCreateNode("D")));
+        assertEquals(3, (int)shortPaths.get(g.getOrCreateNode("B")));
+        assertEquals(8, (int)shortPaths.get(g.getOrCreateNode("E")));
+        assertEquals(10, (int)shortPaths.get(g.getOrCreateNode("C")));
+        assertEquals(11, (int)shortPaths.get(g.getOrCreateNode("F")));
+        assertEquals(11, (int)shortPaths.get(g.getOrCreateNode("G")));
+    }
+
+    @Test
+    public void testPrimJarnik() throws Exception
+    {
+        IGraph g2 = new CompactGraph(GraphFactories.createUndirectedWeightedGraphFromEdgeList(new FileInputStream("tests/dijkstra1.txt"))).primJarnik();
+        assertEquals(7, g2.getAllNodes().size());
+
+        INode a = g2.getOrCreateNode("A");
+        INode b = g2.getOrCreateNode("B");
+        INode c = g2.getOrCreateNode("C");
+        INode d = g2.getOrCreateNode("D");
+        INode e = g2.getOrCreateNode("E");
+        INode f = g2.getOrCreateNode("F");
+        INode g = g2.getOrCreateNode("G");
+
+        assertEquals(1, c.getWeight(g));
+        assertFalse(g.hasEdge(a));
+        assertFalse(c.hasEdge(a));
+        assertEquals(2, c.getWeight(f));
+        assertEquals(3, f.getWeight(e));
+        assertEquals(5, e.getWeight(b));
+        assertEquals(3, b.getWeight(a));
+        assertEquals(2, a.getWeight(d));
+        assertFalse(d.hasEdge(e));
+    }
+
+    @Test
+    public void testBFSAndDFS()
+    {
+        IGraph g = new CompactGraph(makeBfs2());
+        final List<String> order = new LinkedList<>();
+        NodeVisitor v = new NodeVisitor() {
+            @Override
+            public void visit(INode node) {
+                order.add(node.getName());
+            }
+        };
+        g.breadthFirstSearch("A", v);
+        assertEquals(7, order.size());
+        assertEquals("A", order.get(0));
+        assertEquals("E", order.get(4));
+        assertEquals("F", order.get(5));
+        assertEquals("G", order.get(6));
+
+        order.clear();
+        g.depthFirstSearch("A", v);
+        assertEquals(7, order.size());
+        assertEquals("A", order.get(0));
+        assertEquals("E", order.get(2));
+    }
+}
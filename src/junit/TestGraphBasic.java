@@ -1,11 +1,13 @@
 package junit;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import java.util.Arrays;
+import java.util.Map;
 
 import org.junit.Test;
 
@@ -152,4 +154,114 @@ public class TestGraphBasic
         assertFalse(n1.hasEdge(n2));
         assertEquals(7, n2.getWeight(n1));
     }
+    
+    @Test
+    public void testDijkstraReturnsGraphNodes()
+    {
+        IGraph g = new Graph();
+        INode n1=g.getOrCreateNode("A");
+        INode n2=g.getOrCreateNode("B");
+        INode n3=g.getOrCreateNode("C");
+        n1.addUndirectedEdgeToNode(n2, 5);
+        n2.addUndirectedEdgeToNode(n3, 2);
+        n1.addUndirectedEdgeToNode(n3, 9);
+        Map<INode, Integer> costs=g.dijkstra("A");
+        assertEquals(3, costs.size());
+        assertEquals(0, (int)costs.get(n1));
+        assertEquals(5, (int)costs.get(n2));
+        assertEquals(7, (int)costs.get(n3));
+    }
+    
+    @Test
+    public void testEdgeLabels()
+    {
+        IGraph g = new Graph();
+        INode a=g.getOrCreateNode("A");
+        INode b=g.getOrCreateNode("B");
+        INode c=g.getOrCreateNode("C");
+        a.addUndirectedEdgeToNode(b, 3, 2);
+        // a second link between the same nodes adds its labels
+        a.addUndirectedEdgeToNode(b, 1, 4);
+        a.addDirectedEdgeToNode(c, 5);
+        assertEquals(6, a.getLabels(b));
+        assertEquals(6, b.getLabels(a));
+        assertEquals(1, a.getWeight(b));
+        assertEquals(0, a.getLabels(c));
+        // a plain add keeps the labels
+        a.addDirectedEdgeToNode(b, 9);
+        assertEquals(6, a.getLabels(b));
+        assertEquals(2, a.getNeighbors(IGraph.ANY_EDGE).size());
+        assertEquals(1, a.getNeighbors(4).size());
+        assertEquals(0, a.getNeighbors(1).size());
+        assertArrayEquals(new int[] {1}, g.neighborsOf(0, 2));
+        assertEquals(6, g.labels(0, 1));
+        a.removeUndirectedEdgeToNode(b);
+        a.addDirectedEdgeToNode(b, 1);
+        assertEquals(0, a.getLabels(b));
+        try {
+            a.addDirectedEdgeToNode(c, 1, 256);
+            fail("Should have thrown an exception");
+        } catch (IllegalArgumentException e) {
+            // labels only have 8 bits
+        }
+    }
+    
+    @Test
+    public void testNodeIds()
+    {
+        IGraph g = new Graph();
+        INode a=g.getOrCreateNode("A");
+        INode b=g.getOrCreateNode("B");
+        INode c=g.getOrCreateNode("C");
+        assertEquals(0, a.getId());
+        assertEquals(1, b.getId());
+        assertEquals(2, c.getId());
+        assertEquals(-1, new Node("D").getId());
+        assertEquals(3, g.getNodeCount());
+        assertEquals(1, g.getNodeId("B"));
+        assertEquals(-1, g.getNodeId("D"));
+        assertTrue(c==g.getNodeById(2));
+        a.addUndirectedEdgeToNode(b, 4);
+        a.addDirectedEdgeToNode(c, 9);
+        int[] neighbors=g.neighborsOf(a.getId());
+        Arrays.sort(neighbors);
+        assertArrayEquals(new int[] {1, 2}, neighbors);
+        assertEquals(4, g.weight(0, 1));
+        assertEquals(9, g.weight(0, 2));
+        assertArrayEquals(new int[] {0, 1, 1}, g.bfs(0));
+        assertArrayEquals(new int[] {IGraph.UNREACHABLE, IGraph.UNREACHABLE, 0}, g.bfs(2));
+        assertArrayEquals(new int[] {0, 4, 9}, g.dijkstra(0));
+        // changing the graph is picked up by the next search
+        b.addDirectedEdgeToNode(c, 2);
+        assertArrayEquals(new int[] {0, 4, 6}, g.dijkstra(0));
+        b.removeDirectedEdgeToNode(c);
+        assertArrayEquals(new int[] {0, 4, 9}, g.dijkstra(0));
+    }
+    
+    @Test
+    public void testNeighborsFromAnotherGraph()
+    {
+        IGraph g = new Graph();
+        INode a=g.getOrCreateNode("A");
+        g.getOrCreateNode("B");
+        // a standalone node has no id
+        a.addDirectedEdgeToNode(new Node("D"), 1);
+        try {
+            g.neighborsOf(0);
+            fail("Should have thrown an exception");
+        } catch (IllegalArgumentException e) {
+            // D is not in the graph
+        }
+        a.removeDirectedEdgeToNode(a.getNeighbors().iterator().next());
+        // a node of another graph has the id of a different node of this one
+        IGraph other = new Graph();
+        other.getOrCreateNode("X");
+        a.addDirectedEdgeToNode(other.getOrCreateNode("Y"), 1);
+        try {
+            g.dijkstra(0);
+            fail("Should have thrown an exception");
+        } catch (IllegalArgumentException e) {
+            // Y is not in the graph, even though its id is
+        }
+    }
 }
@@ -0,0 +1,314 @@
+package junit;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+import graph.BfsTree;
+import graph.DepthFirstVisitor;
+import graph.DijkstraEngine;
+import graph.Heuristics;
+import graph.IGraph;
+import graph.INode;
+import graph.LabelAutomaton;
+import graph.NodeVisitor;
+import graph.Path;
+import graph.VisitResult;
+import graph.impl.Node;
+
+/**
+ * Tests for the default methods of {@link IGraph} and {@link INode}, using a
+ * graph that only implements the methods every graph had to implement
+ * before there were node ids.
+ */
+public class TestGraphDefaults
+{
+    /**
+     * A node that stores its edges in a map and knows nothing about ids.
+     */
+    static class MapNode implements INode
+    {
+        private final String name;
+        private final Map<INode, Integer> neighbors=new LinkedHashMap<>();
+
+        MapNode(String name) {
+            this.name=name;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public Collection<INode> getNeighbors() {
+            return neighbors.keySet();
+        }
+
+        public void addDirectedEdgeToNode(INode neighbor, int weight) {
+            neighbors.put(neighbor, weight);
+        }
+
+        public void addUndirectedEdgeToNode(INode neighbor, int weight) {
+            addDirectedEdgeToNode(neighbor, weight);
+            neighbor.addDirectedEdgeToNode(this, weight);
+        }
+
+        public void removeDirectedEdgeToNode(INode neighbor) {
+            if (neighbors.remove(neighbor)==null)
+                throw new IllegalStateException();
+        }
+
+        public void removeUndirectedEdgeToNode(INode neighbor) {
+            removeDirectedEdgeToNode(neighbor);
+            neighbor.removeDirectedEdgeToNode(this);
+        }
+
+        public boolean hasEdge(INode node) {
+            return neighbors.containsKey(node);
+        }
+
+        public int getWeight(INode node) {
+            Integer weight=neighbors.get(node);
+            if (weight==null)
+                throw new IllegalStateException();
+            return weight;
+        }
+    }
+
+    /**
+     * A graph that only implements the name-based methods, and only the ones
+     * the tests need.
+     */
+    static class MapGraph implements IGraph
+    {
+        private final Map<String, INode> nodes=new LinkedHashMap<>();
+
+        public INode getOrCreateNode(String name) {
+            return nodes.computeIfAbsent(name, MapNode::new);
+        }
+
+        public boolean containsNode(String name) {
+            return nodes.containsKey(name);
+        }
+
+        public Collection<INode> getAllNodes() {
+            return new ArrayList<>(nodes.values());
+        }
+
+        public void breadthFirstSearch(String startNode, NodeVisitor v) {
+            throw new UnsupportedOperationException();
+        }
+
+        public void depthFirstSearch(String startNode, NodeVisitor v) {
+            throw new UnsupportedOperationException();
+        }
+
+        public Map<INode, Integer> dijkstra(String sourceNode) {
+            throw new UnsupportedOperationException();
+        }
+
+        public IGraph primJarnik() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    // C, A, B, D created in that order, so the ids by name are A=0, B=1, C=2, D=3
+    private static IGraph makeGraph() {
+        IGraph g=new MapGraph();
+        INode c=g.getOrCreateNode("C");
+        INode a=g.getOrCreateNode("A");
+        INode b=g.getOrCreateNode("B");
+        INode d=g.getOrCreateNode("D");
+        a.addUndirectedEdgeToNode(b, 4);
+        a.addDirectedEdgeToNode(c, 9);
+        b.addDirectedEdgeToNode(c, 2);
+        c.addDirectedEdgeToNode(d, 1);
+        return g;
+    }
+
+    @Test
+    public void testIdsFollowNames()
+    {
+        IGraph g=makeGraph();
+        assertEquals(4, g.getNodeCount());
+        assertEquals(-1, g.getOrCreateNode("A").getId());
+        for (int id=0; id<g.getNodeCount(); id++) {
+            assertEquals(id, g.getNodeId(g.getNodeById(id).getName()));
+        }
+        assertEquals(0, g.getNodeId("A"));
+        assertEquals(2, g.getNodeId("C"));
+        assertEquals(-1, g.getNodeId("Z"));
+        assertTrue(g.getOrCreateNode("D")==g.getNodeById(3));
+        int[] neighbors=g.neighborsOf(0);
+        Arrays.sort(neighbors);
+        assertArrayEquals(new int[] {1, 2}, neighbors);
+        assertEquals(4, g.weight(0, 1));
+        assertEquals(2, g.weight(1, 2));
+    }
+
+    @Test
+    public void testNodesWithoutLabels()
+    {
+        IGraph g=makeGraph();
+        INode a=g.getOrCreateNode("A");
+        INode d=g.getOrCreateNode("D");
+        assertEquals(0, a.getLabels(g.getOrCreateNode("B")));
+        assertEquals(0, g.labels(0, 2));
+        try {
+            a.getLabels(d);
+            fail("Should have thrown an exception");
+        } catch (IllegalStateException e) {
+            // there is no edge from A to D
+        }
+        assertEquals(2, a.getNeighbors(IGraph.ANY_EDGE).size());
+        assertEquals(0, a.getNeighbors(1).size());
+        assertEquals(0, g.neighborsOf(0, 1).length);
+        assertEquals(2, g.neighborsOf(0, IGraph.ANY_EDGE).length);
+        // edges without labels can still be added through the label methods
+        a.addDirectedEdgeToNode(d, 3, 0);
+        assertEquals(3, a.getWeight(d));
+        try {
+            a.addUndirectedEdgeToNode(d, 3, 1);
+            fail("Should have thrown an exception");
+        } catch (UnsupportedOperationException e) {
+            // a MapNode has nowhere to keep labels
+        }
+    }
+
+    @Test
+    public void testIdSearches()
+    {
+        IGraph g=makeGraph();
+        assertArrayEquals(new int[] {0, 1, 1, 2}, g.bfs(0));
+        assertArrayEquals(new int[] {IGraph.UNREACHABLE, IGraph.UNREACHABLE, 0, 1}, g.bfs(2));
+        assertArrayEquals(new int[][] {g.bfs(0), g.bfs(2)}, g.multiSourceBfs(0, 2));
+        assertArrayEquals(new int[] {0, 4, 6, 7}, g.dijkstra(0));
+        assertArrayEquals(new int[] {0, 4, 6, 7}, g.dijkstra(0, DijkstraEngine.INDEXED_DARY_HEAP));
+    }
+
+    @Test
+    public void testParallelBfs()
+    {
+        IGraph g=makeGraph();
+        List<INode> visited=new ArrayList<>();
+        BfsTree tree=g.parallelBfs(0, visited::add, true);
+        assertArrayEquals(new int[] {0, 1, 1, 2}, tree.getHops());
+        assertArrayEquals(new int[] {-1, 0, 0, 2}, tree.getParents());
+        assertEquals(Arrays.asList(g.getOrCreateNode("A"), g.getOrCreateNode("B"),
+                g.getOrCreateNode("C"), g.getOrCreateNode("D")), visited);
+    }
+
+    @Test
+    public void testDepthFirstEvents()
+    {
+        IGraph g=makeGraph();
+        List<String> events=new ArrayList<>();
+        g.depthFirstSearch("A", new DepthFirstVisitor() {
+            @Override
+            public void discover(INode node) {
+                assertTrue(node==g.getOrCreateNode(node.getName()));
+                events.add("+"+node.getName());
+            }
+            @Override
+            public void finish(INode node) {
+                events.add("-"+node.getName());
+            }
+        });
+        assertEquals(Arrays.asList("+A", "+B", "+C", "+D", "-D", "-C", "-B", "-A"), events);
+    }
+
+    @Test
+    public void testSearchVisitors()
+    {
+        IGraph g=makeGraph();
+        List<INode> visited=new ArrayList<>();
+        assertTrue(g.searchBreadthFirst("A", node -> {
+            visited.add(node);
+            return node.getName().equals("C") ? VisitResult.STOP : VisitResult.CONTINUE;
+        }));
+        assertEquals(Arrays.asList(g.getOrCreateNode("A"), g.getOrCreateNode("B"), g.getOrCreateNode("C")), visited);
+        visited.clear();
+        assertFalse(g.searchDepthFirst("A", node -> {
+            visited.add(node);
+            return node.getName().equals("B") ? VisitResult.SKIP_CHILDREN : VisitResult.CONTINUE;
+        }));
+        assertEquals(4, visited.size());
+    }
+
+    @Test
+    public void testStreams()
+    {
+        IGraph g=makeGraph();
+        assertEquals(Arrays.asList("A", "B", "C", "D"),
+                g.bfsStream("A").map(INode::getName).collect(Collectors.toList()));
+        assertTrue(g.dfsStream("C").findFirst().get()==g.getOrCreateNode("C"));
+        Map.Entry<INode, Integer> last=g.dijkstraStream("A").reduce((a, b) -> b).get();
+        assertTrue(last.getKey()==g.getOrCreateNode("D"));
+        assertEquals(7, (int)last.getValue());
+    }
+
+    @Test
+    public void testStepFrontiers()
+    {
+        IGraph g=makeGraph();
+        BitSet start=new BitSet();
+        start.set(0);
+        BitSet[] frontiers=g.stepFrontiers(start, 2);
+        assertEquals("{1, 2}", frontiers[0].toString());
+        assertEquals("{0, 2, 3}", frontiers[1].toString());
+    }
+
+    @Test
+    public void testShortestPath()
+    {
+        IGraph g=makeGraph();
+        assertArrayEquals(new int[] {0, 1, 2, 3}, g.shortestPath(0, 3));
+        assertEquals(null, g.shortestPath(3, 0));
+        Path p=g.shortestPath("A", "D");
+        assertEquals(7, p.getCost());
+        assertEquals("A -> B -> C -> D (cost 7)", p.toString());
+        // the path goes through the graph's own nodes, not through a copy
+        assertTrue(p.getEnd()==g.getOrCreateNode("D"));
+        assertEquals(null, g.shortestPath("D", "A"));
+        assertArrayEquals(new int[] {0, 1, 2, 3}, g.bidirectionalShortestPath(0, 3));
+        assertEquals(7, g.bidirectionalShortestPath("A", "D").getCost());
+        assertTrue(g.bidirectionalShortestPath("A", "D").getStart()==g.getOrCreateNode("A"));
+        assertArrayEquals(new int[] {0, 1, 2, 3}, g.aStar(0, 3, Heuristics.zero()));
+        assertEquals(7, g.aStar("A", "D", Heuristics.zero()).getCost());
+        Path p2=g.constrainedShortestPath("A", "D", LabelAutomaton.sequence(IGraph.ANY_EDGE, IGraph.ANY_EDGE));
+        assertEquals("A -> C -> D (cost 10)", p2.toString());
+        assertTrue(p2.getStart()==g.getOrCreateNode("A"));
+        assertArrayEquals(new int[] {0, 2, 3}, g.constrainedShortestPath(0, 3, LabelAutomaton.sequence(IGraph.ANY_EDGE, IGraph.ANY_EDGE)));
+    }
+
+    @Test
+    public void testNeighborNotInGraph()
+    {
+        IGraph g=makeGraph();
+        g.getOrCreateNode("D").addDirectedEdgeToNode(new Node("E"), 1);
+        try {
+            g.neighborsOf(3);
+            fail("Should have thrown an exception");
+        } catch (IllegalArgumentException e) {
+            // E is not in the graph
+        }
+        try {
+            g.dijkstra(0);
+            fail("Should have thrown an exception");
+        } catch (IllegalArgumentException e) {
+            // E is not in the graph
+        }
+    }
+}
@@ -0,0 +1,437 @@
+package junit;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import graph.GraphFactories;
+import graph.IGraph;
+import graph.INode;
+import graph.impl.CompactGraph;
+import graph.impl.Graph;
+import graph.impl.GraphFile;
+import graph.impl.SYSolver;
+
+public class TestGraphIO
+{
+    private static InputStream stream(String s) {
+        return new ByteArrayInputStream(s.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    @Test
+    public void testWeightedEdgeList() throws Exception {
+        IGraph g = GraphFactories.createUndirectedWeightedGraphFromEdgeList(
+                stream("A B 3\r\nB\tC 7\n\n  A D -8\nD \u00c4 2147483647"));
+        assertEquals(5, g.getNodeCount());
+        assertEquals("A", g.getNodeById(0).getName());
+        assertEquals(3, g.getOrCreateNode("B").getWeight(g.getOrCreateNode("A")));
+        assertEquals(7, g.getOrCreateNode("B").getWeight(g.getOrCreateNode("C")));
+        assertEquals(-8, g.getOrCreateNode("D").getWeight(g.getOrCreateNode("A")));
+        assertEquals(Integer.MAX_VALUE, g.getOrCreateNode("\u00c4").getWeight(g.getOrCreateNode("D")));
+    }
+    
+    @Test
+    public void testUnweightedEdgeList() throws Exception {
+        IGraph g = GraphFactories.createUndirectedGraphFromAdjacencyList(stream("A B\nA C\nB C\nC D\n"));
+        assertEquals(4, g.getNodeCount());
+        assertEquals(1, g.getOrCreateNode("D").getWeight(g.getOrCreateNode("C")));
+        assertEquals(2, g.getOrCreateNode("A").getNeighbors().size());
+    }
+    
+    @Test
+    public void testBadInput() throws Exception {
+        String[] bad = {"A B x\n", "A B 3\nC D\n", "A B 99999999999\n", "A B -\n"};
+        for (String s : bad) {
+            try {
+                GraphFactories.createUndirectedWeightedGraphFromEdgeList(stream(s));
+                fail("should not parse: " + s);
+            } catch (IOException e) {
+                // expected
+            }
+        }
+    }
+    
+    @Test
+    public void testLargeEdgeList() throws Exception {
+        // several buffers full, with names that straddle buffer boundaries,
+        // and one name longer than a whole buffer
+        Random random = new Random(7);
+        StringBuilder buf = new StringBuilder();
+        StringBuilder longName = new StringBuilder();
+        for (int i = 0; i < 100000; i++) {
+            longName.append((char)('a' + i % 26));
+        }
+        int n = 2000;
+        int[][] weight = new int[n][n];
+        for (int i = 0; i < 30000; i++) {
+            int a = random.nextInt(n);
+            int b = random.nextInt(n);
+            int w = random.nextInt(1000) - 10;
+            if (a == b) {
+                continue;
+            }
+            weight[a][b] = w;
+            weight[b][a] = w;
+            buf.append("node").append(a).append(' ').append("node").append(b).append(' ').append(w).append('\n');
+        }
+        buf.append(longName).append(" node0 5\n");
+        IGraph g = GraphFactories.createUndirectedWeightedGraphFromEdgeList(stream(buf.toString()));
+        for (INode src : g.getAllNodes()) {
+            if (src.getName().length() > 100) {
+                assertEquals(longName.toString(), src.getName());
+                continue;
+            }
+            int a = Integer.parseInt(src.getName().substring(4));
+            for (INode dst : src.getNeighbors()) {
+                if (dst.getName().length() > 100) {
+                    continue;
+                }
+                int b = Integer.parseInt(dst.getName().substring(4));
+                assertEquals(weight[a][b], src.getWeight(dst));
+            }
+        }
+        assertEquals(5, g.getOrCreateNode(longName.toString()).getWeight(g.getOrCreateNode("node0")));
+    }
+    
+    @Test
+    public void testMappedEdgeList() throws Exception {
+        // big enough to be cut into several chunks, with each pair of nodes
+        // listed many times, in both orders, so the last line has to win
+        Random random = new Random(11);
+        int n = 500;
+        int[][] weight = new int[n][n];
+        Path file = Files.createTempFile("edges", ".txt");
+        try {
+            try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+                for (int i = 0; i < 300000; i++) {
+                    int a = random.nextInt(n);
+                    int b = random.nextInt(n);
+                    int w = random.nextInt(100000) + 1;
+                    weight[a][b] = w;
+                    weight[b][a] = w;
+                    out.write("n" + a + " n" + b + "\t" + w + (i % 3 == 0 ? "\r\n" : "\n"));
+                }
+            }
+            IGraph g = GraphFactories.loadCompactUndirectedWeightedGraphFromEdgeList(file);
+            assertEquals(n, g.getNodeCount());
+            int edges = 0;
+            for (int a = 0; a < n; a++) {
+                int id = g.getNodeId("n" + a);
+                for (int b : g.neighborsOf(id)) {
+                    int other = Integer.parseInt(g.getNodeById(b).getName().substring(1));
+                    assertEquals(weight[a][other], g.weight(id, b));
+                    edges++;
+                }
+                for (int b = 0; b < n; b++) {
+                    if (weight[a][b] != 0) {
+                        edges--;
+                    }
+                }
+            }
+            assertEquals(0, edges);
+            // nodes are numbered in order of first appearance, like the stream reader does
+            IGraph h = GraphFactories.createUndirectedWeightedGraphFromEdgeList(Files.newInputStream(file));
+            for (int id = 0; id < n; id++) {
+                assertEquals(h.getNodeById(id).getName(), g.getNodeById(id).getName());
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+    
+    @Test
+    public void testMappedAdjacencyList() throws Exception {
+        Path file = Files.createTempFile("edges", ".txt");
+        try {
+            Files.write(file, "A B\nA C\nB C\nC D\nD D\nB A".getBytes(StandardCharsets.UTF_8));
+            IGraph g = GraphFactories.loadCompactUndirectedGraphFromAdjacencyList(file);
+            assertEquals(4, g.getNodeCount());
+            assertArrayEquals(new int[] {1, 2}, g.neighborsOf(g.getNodeId("A")));
+            assertArrayEquals(new int[] {2, 3}, g.neighborsOf(g.getNodeId("D")));
+            assertEquals(1, g.weight(3, 2));
+            Files.write(file, "A B 1\nC\n".getBytes(StandardCharsets.UTF_8));
+            try {
+                GraphFactories.loadCompactUndirectedWeightedGraphFromEdgeList(file);
+                fail("should not parse an incomplete edge");
+            } catch (IOException e) {
+                // expected
+            }
+            Files.write(file, "A B 1\nC D x1\n".getBytes(StandardCharsets.UTF_8));
+            try {
+                GraphFactories.loadCompactUndirectedWeightedGraphFromEdgeList(file);
+                fail("should not parse a bad weight");
+            } catch (IOException e) {
+                assertTrue(e.getMessage(), e.getMessage().contains("line 2: expected an integer but found x1"));
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+    
+    private static Path tempGraphFile() throws IOException {
+        Path file = Files.createTempFile("graph", ".csrg");
+        // a mapped file can't be deleted on some systems while it is mapped
+        file.toFile().deleteOnExit();
+        return file;
+    }
+    
+    private static void assertSameGraph(IGraph expected, IGraph actual) {
+        assertEquals(expected.getNodeCount(), actual.getNodeCount());
+        for (int id = 0; id < expected.getNodeCount(); id++) {
+            String name = expected.getNodeById(id).getName();
+            assertEquals(name, actual.getNodeById(id).getName());
+            assertEquals(id, actual.getNodeId(name));
+            assertTrue(actual.containsNode(name));
+            int[] neighbors = expected.neighborsOf(id);
+            Arrays.sort(neighbors);
+            assertArrayEquals(neighbors, actual.neighborsOf(id));
+            for (int dst : neighbors) {
+                assertEquals(expected.weight(id, dst), actual.weight(id, dst));
+                assertEquals(expected.labels(id, dst), actual.labels(id, dst));
+            }
+        }
+    }
+    
+    @Test
+    public void testGraphFileRoundTrip() throws Exception {
+        IGraph g = GraphFactories.createUndirectedWeightedGraphFromEdgeList(new FileInputStream("tests/dijkstra1.txt"));
+        g.getOrCreateNode("\u00c4\u00f6 lonely");
+        Path file = tempGraphFile();
+        GraphFile.write(g, file);
+        CompactGraph mapped = GraphFile.map(file);
+        assertSameGraph(g, mapped);
+        assertEquals(-1, mapped.getNodeId("nobody"));
+        assertFalse(mapped.containsNode("nobody"));
+        for (int id = 0; id < g.getNodeCount(); id++) {
+            assertArrayEquals(g.dijkstra(id), mapped.dijkstra(id));
+        }
+        assertEquals(g.shortestPath("A", "F").getCost(), mapped.shortestPath("A", "F").getCost());
+        
+        // labels, and a mapped graph written out again
+        IGraph sy = SYSolver.readGraphFromFile(new FileInputStream("files/scotmap.txt"));
+        GraphFile.write(sy, file);
+        // the file is replaced, not overwritten, so the old mapping still works
+        assertSameGraph(g, mapped);
+        assertTrue(mapped.getNodeById(0) == mapped.getNodeById(0));
+        Path copy = tempGraphFile();
+        GraphFile.write(GraphFile.map(file), copy);
+        CompactGraph mappedSy = GraphFile.map(copy);
+        assertSameGraph(sy, mappedSy);
+        assertEquals(SYSolver.getNextFivePossibleMoves(sy, "13"), SYSolver.getNextFivePossibleMoves(mappedSy, "13"));
+        
+        IGraph empty = new Graph();
+        GraphFile.write(empty, file);
+        assertEquals(0, GraphFile.map(file).getNodeCount());
+    }
+    
+    @Test
+    public void testGraphFileRejectsOtherFiles() throws Exception {
+        Path file = tempGraphFile();
+        GraphFile.write(GraphFactories.createUndirectedGraphFromAdjacencyList(stream("A B\n")), file);
+        byte[] bytes = Files.readAllBytes(file);
+        
+        byte[] wrongVersion = bytes.clone();
+        wrongVersion[4] = 99;
+        byte[] truncated = Arrays.copyOf(bytes, bytes.length - 1);
+        byte[][] bad = {"A B 1\n".getBytes(StandardCharsets.UTF_8), new byte[200], wrongVersion, truncated};
+        for (byte[] b : bad) {
+            Path other = tempGraphFile();
+            Files.write(other, b);
+            try {
+                GraphFile.map(other);
+                fail("should not map a broken file");
+            } catch (IOException e) {
+                // expected
+            }
+        }
+    }
+    
+    // the lines of a DOT file in sorted order, since a Graph's neighbors come in no particular order
+    private static List<String> sortedLines(String text) {
+        List<String> lines = new ArrayList<String>(Arrays.asList(text.split("\n")));
+        Collections.sort(lines);
+        return lines;
+    }
+    
+    @Test
+    public void testDotWriters() throws Exception {
+        Graph g = new Graph();
+        g.getOrCreateNode("A").addUndirectedEdgeToNode(g.getOrCreateNode("B"), 3);
+        g.getOrCreateNode("B").addUndirectedEdgeToNode(g.getOrCreateNode("C"), 7);
+        g.getOrCreateNode("A").addUndirectedEdgeToNode(g.getOrCreateNode("D"), 8);
+        assertEquals(sortedLines("graph G {\nA -- B\nA -- D\nB -- C\n}\n"),
+                sortedLines(GraphFactories.toUndirectedUnweightedDotFile(g, "G")));
+        assertEquals(sortedLines("graph G {\nA -- B [label=3];\nA -- D [label=8];\nB -- C [label=7];\n}\n"),
+                sortedLines(GraphFactories.toUndirectedWeightedDotFile(g, "G")));
+        
+        // directed graphs keep both directions of an edge
+        IGraph d = new Graph();
+        INode a = d.getOrCreateNode("A");
+        INode b = d.getOrCreateNode("B");
+        INode c = d.getOrCreateNode("my node");
+        a.addDirectedEdgeToNode(b, 2);
+        b.addDirectedEdgeToNode(a, 5);
+        c.addDirectedEdgeToNode(a, 1);
+        assertEquals(sortedLines("digraph G {\nA -> B [label=2];\nB -> A [label=5];\n\"my node\" -> A [label=1];\n}\n"),
+                sortedLines(GraphFactories.toDirectedWeightedDotFile(d, "G")));
+        assertEquals(sortedLines("digraph G {\nA -> B;\nB -> A;\n\"my node\" -> A;\n}\n"),
+                sortedLines(GraphFactories.toDirectedUnWeightedDotFile(d, "G")));
+        // an edge that only goes one way is still written in an undirected file
+        assertEquals(sortedLines("graph G {\nA -- B [label=2];\n\"my node\" -- A [label=1];\n}\n"),
+                sortedLines(GraphFactories.toUndirectedWeightedDotFile(d, "G")));
+        
+        // a neighbor from another graph is not mistaken for a node of this one with the same id
+        IGraph u = new Graph();
+        u.getOrCreateNode("P");
+        INode q = u.getOrCreateNode("Q");
+        INode r = new Graph().getOrCreateNode("R");
+        q.addUndirectedEdgeToNode(r, 6);
+        assertEquals("graph G {\nQ -- R [label=6];\n}\n", GraphFactories.toUndirectedWeightedDotFile(u, "G"));
+        
+        // a quote, a backslash and a newline are escaped in quoted names
+        IGraph e = new Graph();
+        e.getOrCreateNode("C:\\dir\\").addDirectedEdgeToNode(e.getOrCreateNode("two\nlines \"x\""), 3);
+        assertEquals("digraph G {\n\"C:\\\\dir\\\\\" -> \"two\\nlines \\\"x\\\"\";\n}\n",
+                GraphFactories.toDirectedUnWeightedDotFile(e, "G"));
+        
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        GraphFactories.writeDotFile(d, "G", true, true, bytes);
+        assertEquals(GraphFactories.toDirectedWeightedDotFile(d, "G"), new String(bytes.toByteArray(), StandardCharsets.UTF_8));
+        StringWriter writer = new StringWriter();
+        GraphFactories.writeDotFile(g, "G", false, false, writer);
+        assertEquals(GraphFactories.toUndirectedUnweightedDotFile(g, "G"), writer.toString());
+    }
+    
+    /**
+     * Check that the graphs have the same nodes and edges, matching nodes by
+     * name rather than by id.
+     */
+    private static void assertSameEdges(IGraph expected, IGraph actual) {
+        assertEquals(expected.getNodeCount(), actual.getNodeCount());
+        for (INode src : expected.getAllNodes()) {
+            INode actualSrc = actual.getOrCreateNode(src.getName());
+            assertEquals(src.getNeighbors().size(), actualSrc.getNeighbors().size());
+            for (INode dst : src.getNeighbors()) {
+                assertEquals(src.getWeight(dst), actualSrc.getWeight(actual.getOrCreateNode(dst.getName())));
+            }
+        }
+    }
+    
+    private static IGraph dot(String s) throws IOException {
+        return GraphFactories.readFromDotFile(stream(s));
+    }
+    
+    @Test
+    public void testReadDotFiles() throws Exception {
+        IGraph g = GraphFactories.readFromDotFile(new FileInputStream("tests/dijkstra1.dot"));
+        IGraph expected = GraphFactories.createUndirectedWeightedGraphFromEdgeList(new FileInputStream("tests/dijkstra1.txt"));
+        // the DOT file leaves out one edge of the text file
+        expected.getOrCreateNode("D").removeUndirectedEdgeToNode(expected.getOrCreateNode("E"));
+        assertSameEdges(expected, g);
+        // unweighted files get weight 1
+        IGraph bfs = GraphFactories.readFromDotFile(new FileInputStream("tests/bfs1.dot"));
+        assertEquals(1, bfs.getOrCreateNode("A").getWeight(bfs.getOrCreateNode("B")));
+        assertTrue(bfs.getOrCreateNode("B").hasEdge(bfs.getOrCreateNode("A")));
+    }
+    
+    @Test
+    public void testDotRoundTrip() throws Exception {
+        IGraph d = new Graph();
+        INode a = d.getOrCreateNode("A");
+        INode b = d.getOrCreateNode("say \"hi\"");
+        INode c = d.getOrCreateNode("-4.5");
+        INode e = d.getOrCreateNode("graph");
+        a.addDirectedEdgeToNode(b, 2);
+        b.addDirectedEdgeToNode(a, -5);
+        c.addDirectedEdgeToNode(e, 1);
+        e.addDirectedEdgeToNode(e, 7);
+        // backslashes and newlines are escaped, so a trailing backslash does not eat the quote
+        INode dir = d.getOrCreateNode("C:\\dir\\");
+        INode lines = d.getOrCreateNode("two\nlines \\n");
+        dir.addDirectedEdgeToNode(lines, 3);
+        String text = GraphFactories.toDirectedWeightedDotFile(d, "round trip");
+        assertTrue(text.contains("\"C:\\\\dir\\\\\" -> \"two\\nlines \\\\n\" [label=3];\n"));
+        assertSameEdges(d, dot(text));
+        
+        IGraph u = GraphFactories.createUndirectedWeightedGraphFromEdgeList(new FileInputStream("tests/dijkstra1.txt"));
+        assertSameEdges(u, dot(GraphFactories.toUndirectedWeightedDotFile(u, "G")));
+    }
+    
+    @Test
+    public void testDotSyntax() throws Exception {
+        IGraph g = dot("/* a comment */ strict graph {\n"
+                + "  rankdir=LR; node [shape=box]\n"
+                + "  # a preprocessor line\n"
+                + "  edge [weight=4]\n"
+                + "  lonely\n"
+                + "  A -- B -- C // a chain\n"
+                + "  C:port:n -- D [color=red, label=\"not a number\"]\n"
+                + "  D -- E [label=9][weight=2]; E -- \"F G\" [label=6, weight=3];\n"
+                + "  <H<b>tml</b>> -- A [label=-1]\n"
+                + "}\n"
+                + "graph ignored { X -- Y }");
+        assertEquals(8, g.getNodeCount());
+        assertEquals("lonely", g.getNodeById(0).getName());
+        assertEquals(0, g.getOrCreateNode("lonely").getNeighbors().size());
+        assertEquals(4, g.weight(g.getNodeId("A"), g.getNodeId("B")));
+        assertEquals(4, g.weight(g.getNodeId("C"), g.getNodeId("B")));
+        assertEquals(4, g.weight(g.getNodeId("C"), g.getNodeId("D")));
+        // an int label beats a weight
+        assertEquals(9, g.weight(g.getNodeId("E"), g.getNodeId("D")));
+        assertEquals(6, g.weight(g.getNodeId("E"), g.getNodeId("F G")));
+        assertEquals(-1, g.weight(g.getNodeId("A"), g.getNodeId("H<b>tml</b>")));
+        assertFalse(g.containsNode("X"));
+        
+        IGraph d = dot("digraph G { 1->2->3 [label=5] }");
+        assertTrue(d.getOrCreateNode("1").hasEdge(d.getOrCreateNode("2")));
+        assertFalse(d.getOrCreateNode("2").hasEdge(d.getOrCreateNode("1")));
+        assertEquals(5, d.getOrCreateNode("2").getWeight(d.getOrCreateNode("3")));
+        
+        // GraphViz weights are layout hints, and may be floats
+        IGraph w = dot("graph { A -- B [weight=1.5]; B -- C [weight=2.5, label=7]; C -- D [weight=x, label=\"far\"] }");
+        assertEquals(1, w.weight(w.getNodeId("A"), w.getNodeId("B")));
+        assertEquals(7, w.weight(w.getNodeId("B"), w.getNodeId("C")));
+        assertEquals(1, w.weight(w.getNodeId("C"), w.getNodeId("D")));
+        
+        String[] bad = {"graph { A -> B }", "digraph { A -- B }", "graph { A -- }", "graph { A -- B ",
+                "graph { subgraph s { A } }", "graph { \"A -- B }", "tree { A -- B }",
+                "graph { A -- B [label=] }", "graph { A -- B /* }"};
+        for (String s : bad) {
+            try {
+                dot(s);
+                fail("should not parse: " + s);
+            } catch (IOException ex) {
+                // expected
+            }
+        }
+    }
+    
+    @Test
+    public void testScotlandYardMap() throws Exception {
+        IGraph g = SYSolver.readGraphFromFile(new FileInputStream("files/scotmap.txt"));
+        assertEquals(199, g.getNodeCount());
+        assertTrue(g.getOrCreateNode("1").getNeighbors().contains(g.getOrCreateNode("8")));
+        assertEquals(SYSolver.BUS, g.labels(g.getNodeId("1"), g.getNodeId("58")) & SYSolver.BUS);
+        assertEquals(199, SYSolver.readPositionPoints("files/scotpos.txt").size());
+    }
+}
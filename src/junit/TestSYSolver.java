@@ -0,0 +1,252 @@
+package junit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.FileInputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import javax.swing.SwingUtilities;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import graph.IGraph;
+import graph.INode;
+import graph.impl.MrXTracker;
+import graph.impl.PossibleMovesService;
+import graph.impl.SYSolver;
+
+public class TestSYSolver
+{
+    private IGraph g;
+    
+    @Before
+    public void readMap() throws Exception {
+        g = SYSolver.readGraphFromFile(new FileInputStream("files/scotmap.txt"));
+    }
+    
+    private static Set<String> names(String... names) {
+        return new HashSet<>(Arrays.asList(names));
+    }
+    
+    @Test
+    public void testBothLinksBetweenTheSameLocationsAreKept() {
+        // the file has both "1 46 B" and "1 46 U"
+        INode one = g.getOrCreateNode("1");
+        INode fortySix = g.getOrCreateNode("46");
+        assertEquals(SYSolver.BUS | SYSolver.UNDERGROUND, one.getLabels(fortySix));
+        assertEquals(SYSolver.BUS | SYSolver.UNDERGROUND, fortySix.getLabels(one));
+        assertEquals(1, one.getWeight(fortySix));
+        assertEquals(2, one.getNeighbors(SYSolver.BUS).size());
+        assertEquals(1, one.getNeighbors(SYSolver.UNDERGROUND).size());
+        assertEquals(4, one.getNeighbors(IGraph.ANY_EDGE).size());
+    }
+    
+    @Test
+    public void testFirstMove() {
+        Map<Integer, Set<String>> moves = SYSolver.getNextFivePossibleMoves(g, "1");
+        assertEquals(5, moves.size());
+        assertEquals(names("8", "9", "46", "58"), moves.get(1));
+        
+        moves = SYSolver.getNextFivePossibleMoves(g, "1",
+                Arrays.asList("underground", "any", "any", "any", "any"));
+        assertEquals(names("46"), moves.get(1));
+        moves = SYSolver.getNextFivePossibleMoves(g, "1",
+                Arrays.asList("bus", "any", "any", "any", "any"));
+        assertEquals(names("46", "58"), moves.get(1));
+    }
+    
+    @Test
+    public void testImpossibleMoveLeavesNothing() {
+        // there is no underground station at 2
+        Map<Integer, Set<String>> moves = SYSolver.getNextFivePossibleMoves(g, "2",
+                Arrays.asList("underground", "taxi", "taxi", "taxi", "taxi"));
+        for (int i = 1; i <= 5; i++) {
+            assertTrue(moves.get(i).isEmpty());
+        }
+    }
+    
+    @Test
+    public void testStepFrontiersMatchNeighborSets() {
+        // compare with building each step's set from the previous one by hand
+        int[] masks = {SYSolver.TAXI, IGraph.ANY_EDGE, SYSolver.BUS, SYSolver.TAXI | SYSolver.UNDERGROUND,
+                IGraph.ANY_EDGE, SYSolver.TAXI, SYSolver.TAXI, SYSolver.BUS};
+        for (int start = 0; start < g.getNodeCount(); start++) {
+            BitSet set = new BitSet();
+            set.set(start);
+            BitSet[] frontiers = g.stepFrontiers(set, masks.length, masks);
+            BitSet expected = set;
+            for (int step = 0; step < masks.length; step++) {
+                BitSet next = new BitSet();
+                for (int u = expected.nextSetBit(0); u >= 0; u = expected.nextSetBit(u + 1)) {
+                    for (int v : g.neighborsOf(u)) {
+                        if (masks[step] == IGraph.ANY_EDGE || (g.labels(u, v) & masks[step]) != 0) {
+                            next.set(v);
+                        }
+                    }
+                }
+                assertEquals(next, frontiers[step]);
+                expected = next;
+            }
+        }
+    }
+    
+    @Test
+    public void testManySteps() {
+        BitSet set = new BitSet();
+        set.set(g.getNodeId("1"));
+        BitSet[] frontiers = g.stepFrontiers(set, 200);
+        assertEquals(200, frontiers.length);
+        // the board is connected and has odd cycles, so eventually every
+        // location can be reached in exactly n steps
+        assertEquals(g.getNodeCount(), frontiers[199].cardinality());
+    }
+    
+    @Test
+    public void testTrackerMatchesPossibleMoves() {
+        List<String> types = Arrays.asList("taxi", "any", "bus", "taxi", "underground");
+        Map<Integer, Set<String>> moves = SYSolver.getNextFivePossibleMoves(g, "13", types);
+        MrXTracker tracker = new MrXTracker(g, "13");
+        assertEquals(names("13"), tracker.getPossibleLocations());
+        for (int i = 1; i <= 5; i++) {
+            tracker.move(types.get(i - 1));
+            assertEquals(i, tracker.getMoveCount());
+            assertEquals(moves.get(i), tracker.getPossibleLocations());
+        }
+    }
+    
+    @Test
+    public void testTrackerRevealAndUndo() {
+        MrXTracker tracker = new MrXTracker(g, "1");
+        tracker.move(SYSolver.BUS);
+        assertEquals(names("46", "58"), tracker.getPossibleLocations());
+        tracker.move(IGraph.ANY_EDGE);
+        Set<String> afterTwo = tracker.getPossibleLocations();
+        assertTrue(tracker.isPossible("1"));
+        tracker.reveal("46");
+        assertEquals(names("46"), tracker.getPossibleLocations());
+        assertEquals(2, tracker.getMoveCount());
+        
+        assertTrue(tracker.undo());
+        assertEquals(afterTwo, tracker.getPossibleLocations());
+        assertTrue(tracker.undo());
+        assertEquals(names("46", "58"), tracker.getPossibleLocations());
+        assertEquals(1, tracker.getMoveCount());
+        assertTrue(tracker.undo());
+        assertEquals(names("1"), tracker.getPossibleLocations());
+        assertFalse(tracker.undo());
+        
+        // an impossible move leaves nowhere to be
+        MrXTracker stuck = new MrXTracker(g, "2");
+        stuck.move("underground");
+        assertTrue(stuck.getPossibleLocations().isEmpty());
+    }
+    
+    @Test
+    public void testTrackerLongGame() {
+        // a game much longer than 5 moves agrees with stepFrontiers
+        int[] masks = new int[40];
+        for (int i = 0; i < masks.length; i++) {
+            masks[i] = i % 3 == 0 ? SYSolver.TAXI : IGraph.ANY_EDGE;
+        }
+        BitSet start = new BitSet();
+        start.set(g.getNodeId("100"));
+        BitSet[] frontiers = g.stepFrontiers(start, masks.length, masks);
+        MrXTracker tracker = new MrXTracker(g, Arrays.asList("100"));
+        for (int i = 0; i < masks.length; i++) {
+            tracker.move(masks[i]);
+            assertEquals(frontiers[i], tracker.getPossibleIds());
+        }
+        // and undoing the moves goes back through the same frontiers
+        for (int i = masks.length - 2; i >= 0; i--) {
+            assertTrue(tracker.undo());
+            assertEquals(frontiers[i], tracker.getPossibleIds());
+            assertEquals(i + 1, tracker.getMoveCount());
+        }
+        assertTrue(tracker.undo());
+        assertEquals(start, tracker.getPossibleIds());
+        assertFalse(tracker.undo());
+    }
+    
+    @Test
+    public void testMovesServiceCachesResults() {
+        List<Runnable> queued = new ArrayList<>();
+        // runs nothing until we say so
+        PossibleMovesService service = new PossibleMovesService(g, 2, queued::add);
+        List<String> types = Arrays.asList("bus", "any", "any", "any", "any");
+        assertNull(service.get("1", types, true, null));
+        assertNull(service.get("1", types, true, null));
+        // asking twice only computes once
+        assertEquals(1, queued.size());
+        queued.remove(0).run();
+        assertEquals(SYSolver.getNextFivePossibleMoves(g, "1", types), service.get("1", types, true, null));
+        
+        // without transport types, the types don't matter
+        assertNull(service.get("1", types, false, null));
+        queued.remove(0).run();
+        assertEquals(SYSolver.getNextFivePossibleMoves(g, "1"),
+                service.get("1", Arrays.asList("taxi", "taxi", "taxi", "taxi", "taxi"), false, null));
+        assertEquals(2, service.size());
+        
+        // a third result pushes out the least recently used one, which is the bus query
+        service.get("1", types, false, null);
+        assertNull(service.get("2", types, false, null));
+        queued.remove(0).run();
+        assertEquals(2, service.size());
+        assertNull(service.get("1", types, true, null));
+        assertEquals(1, queued.size());
+    }
+    
+    @Test
+    public void testMovesServiceRejected() {
+        boolean[] reject = {true};
+        List<Runnable> queued = new ArrayList<>();
+        PossibleMovesService service = new PossibleMovesService(g, 2, r -> {
+            if (reject[0]) {
+                throw new RejectedExecutionException();
+            }
+            queued.add(r);
+        });
+        List<String> types = Arrays.asList("any", "any", "any", "any", "any");
+        try {
+            service.get("1", types, false, null);
+            fail("Should have thrown an exception");
+        } catch (RejectedExecutionException e) {
+            // the executor would not take it
+        }
+        // the failed request is not left pending, so the next one starts over
+        reject[0] = false;
+        assertNull(service.get("1", types, false, null));
+        assertEquals(1, queued.size());
+        queued.remove(0).run();
+        assertEquals(SYSolver.getNextFivePossibleMoves(g, "1"), service.get("1", types, false, null));
+    }
+    
+    @Test
+    public void testMovesServiceCallsBack() throws Exception {
+        PossibleMovesService service = new PossibleMovesService(g);
+        CountDownLatch ready = new CountDownLatch(1);
+        List<String> types = Arrays.asList("any", "any", "any", "any", "any");
+        Map<Integer, Set<String>> moves = service.get("50", types, false, () -> {
+            assertTrue(SwingUtilities.isEventDispatchThread());
+            ready.countDown();
+        });
+        if (moves == null) {
+            assertTrue(ready.await(10, TimeUnit.SECONDS));
+        }
+        assertEquals(SYSolver.getNextFivePossibleMoves(g, "50"), service.get("50", types, false, null));
+    }
+}
@@ -0,0 +1,386 @@
+package junit;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Point;
+import java.io.FileInputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+import graph.DijkstraEngine;
+import graph.GraphFactories;
+import graph.GridGraph;
+import graph.Heuristic;
+import graph.Heuristics;
+import graph.IGraph;
+import graph.INode;
+import graph.LabelAutomaton;
+import graph.Path;
+import graph.impl.Graph;
+import graph.impl.SYSolver;
+
+public class TestShortestPaths
+{
+    /**
+     * Make a random directed graph with the given number of nodes and edges
+     * and weights between 0 and maxWeight. Uses a fixed seed so failures can
+     * be reproduced.
+     */
+    static IGraph randomGraph(int nodes, int edges, int maxWeight, long seed) {
+        Random random = new Random(seed);
+        IGraph g = new Graph();
+        for (int i = 0; i < nodes; i++) {
+            g.getOrCreateNode("n" + i);
+        }
+        for (int i = 0; i < edges; i++) {
+            INode src = g.getNodeById(random.nextInt(nodes));
+            INode dst = g.getNodeById(random.nextInt(nodes));
+            src.addDirectedEdgeToNode(dst, random.nextInt(maxWeight + 1));
+        }
+        return g;
+    }
+
+    /**
+     * Simple O(n^2) Dijkstra with repeated linear scans, to check the engines against.
+     */
+    static int[] referenceDijkstra(IGraph g, int source) {
+        int n = g.getNodeCount();
+        int[] dist = new int[n];
+        boolean[] done = new boolean[n];
+        Arrays.fill(dist, IGraph.UNREACHABLE);
+        dist[source] = 0;
+        while (true) {
+            int u = -1;
+            for (int i = 0; i < n; i++) {
+                if (!done[i] && dist[i] != IGraph.UNREACHABLE && (u < 0 || dist[i] < dist[u])) {
+                    u = i;
+                }
+            }
+            if (u < 0) {
+                return dist;
+            }
+            done[u] = true;
+            for (int v : g.neighborsOf(u)) {
+                dist[v] = Math.min(dist[v], dist[u] + g.weight(u, v));
+            }
+        }
+    }
+
+    @Test
+    public void testEnginesOnDijkstra1() throws Exception
+    {
+        IGraph g = GraphFactories.createUndirectedWeightedGraphFromEdgeList(new FileInputStream("tests/dijkstra1.txt"));
+        int a = g.getNodeId("A");
+        for (DijkstraEngine engine : DijkstraEngine.values()) {
+            int[] dist = g.dijkstra(a, engine);
+            assertEquals(engine.toString(), 0, dist[a]);
+            assertEquals(engine.toString(), 2, dist[g.getNodeId("D")]);
+            assertEquals(engine.toString(), 3, dist[g.getNodeId("B")]);
+            assertEquals(engine.toString(), 8, dist[g.getNodeId("E")]);
+            assertEquals(engine.toString(), 10, dist[g.getNodeId("C")]);
+            assertEquals(engine.toString(), 11, dist[g.getNodeId("F")]);
+            assertEquals(engine.toString(), 11, dist[g.getNodeId("G")]);
+        }
+    }
+
+    @Test
+    public void testEnginesAgreeOnRandomGraphs()
+    {
+        for (int seed = 0; seed < 20; seed++) {
+            IGraph g = randomGraph(200, 800, seed % 2 == 0 ? 10 : 100000, seed);
+            int[] expected = referenceDijkstra(g, 0);
+            for (DijkstraEngine engine : DijkstraEngine.values()) {
+                assertArrayEquals(engine + " seed " + seed, expected, g.dijkstra(0, engine));
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBucketQueueRejectsNegativeWeights()
+    {
+        IGraph g = new Graph();
+        g.getOrCreateNode("A").addDirectedEdgeToNode(g.getOrCreateNode("B"), -1);
+        g.dijkstra(0, DijkstraEngine.DIAL_BUCKETS);
+    }
+
+    @Test
+    public void testShortestPath() throws Exception
+    {
+        IGraph g = GraphFactories.createUndirectedWeightedGraphFromEdgeList(new FileInputStream("tests/dijkstra1.txt"));
+        Path p = g.shortestPath("A", "F");
+        assertEquals(11, p.getCost());
+        assertEquals(3, p.getLength());
+        assertEquals("A", p.getStart().getName());
+        assertEquals("B", p.getNodes().get(1).getName());
+        assertEquals("E", p.getNodes().get(2).getName());
+        assertEquals("F", p.getEnd().getName());
+        // nodes in the path are the nodes of the graph
+        assertTrue(p.getEnd() == g.getOrCreateNode("F"));
+
+        Path trivial = g.shortestPath("C", "C");
+        assertEquals(0, trivial.getCost());
+        assertEquals(0, trivial.getLength());
+
+        g.getOrCreateNode("Z");
+        assertNull(g.shortestPath("A", "Z"));
+    }
+
+    @Test
+    public void testShortestPathMatchesDijkstra()
+    {
+        for (int seed = 0; seed < 10; seed++) {
+            IGraph g = randomGraph(150, 500, 50, seed);
+            int[] expected = referenceDijkstra(g, 0);
+            for (int dst = 0; dst < g.getNodeCount(); dst++) {
+                int[] ids = g.shortestPath(0, dst);
+                if (expected[dst] == IGraph.UNREACHABLE) {
+                    assertNull(ids);
+                } else {
+                    assertEquals(0, ids[0]);
+                    assertEquals(dst, ids[ids.length - 1]);
+                    assertEquals(expected[dst], Path.fromIds(g, ids).getCost());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testBidirectionalMatchesDijkstra()
+    {
+        for (int seed = 0; seed < 10; seed++) {
+            IGraph g = randomGraph(150, 400, seed % 3 == 0 ? 1 : 50, seed);
+            for (int src = 0; src < 5; src++) {
+                int[] expected = referenceDijkstra(g, src);
+                for (int dst = 0; dst < g.getNodeCount(); dst++) {
+                    int[] ids = g.bidirectionalShortestPath(src, dst);
+                    if (expected[dst] == IGraph.UNREACHABLE) {
+                        assertNull(ids);
+                    } else {
+                        assertEquals(src, ids[0]);
+                        assertEquals(dst, ids[ids.length - 1]);
+                        assertEquals("seed " + seed + " " + src + "->" + dst,
+                                expected[dst], Path.fromIds(g, ids).getCost());
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testBidirectionalOnGrid()
+    {
+        IGraph g = GridGraph.makeGridGraph(30, 40);
+        Path p = g.bidirectionalShortestPath("r0c0", "r29c39");
+        assertEquals(29 + 39, p.getCost());
+        assertEquals(29 + 39, p.getLength());
+        assertEquals("r0c0", p.getStart().getName());
+        assertEquals("r29c39", p.getEnd().getName());
+        assertEquals(12, g.bidirectionalShortestPath("r5c5", "r10c12").getCost());
+    }
+
+    @Test
+    public void testBidirectionalBFSOnDirectedGraph()
+    {
+        // every edge costs 3, so the bidirectional search is breadth-first
+        Random random = new Random(7);
+        IGraph g = new Graph();
+        for (int i = 0; i < 300; i++) {
+            g.getOrCreateNode("n" + i);
+        }
+        for (int i = 0; i < 700; i++) {
+            g.getNodeById(random.nextInt(300)).addDirectedEdgeToNode(g.getNodeById(random.nextInt(300)), 3);
+        }
+        for (int src = 0; src < 5; src++) {
+            int[] expected = referenceDijkstra(g, src);
+            for (int dst = 0; dst < g.getNodeCount(); dst++) {
+                int[] ids = g.bidirectionalShortestPath(src, dst);
+                if (expected[dst] == IGraph.UNREACHABLE) {
+                    assertNull(ids);
+                } else {
+                    assertEquals(expected[dst], Path.fromIds(g, ids).getCost());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testAStarOnGrid()
+    {
+        IGraph g = GridGraph.makeGridGraph(25, 25);
+        Heuristic h = Heuristics.gridManhattan(g);
+        int src = g.getNodeId("r3c4");
+        int dst = g.getNodeId("r20c17");
+        assertEquals(17 + 13, h.estimate(src, dst));
+        Path p = g.aStar("r3c4", "r20c17", h);
+        assertEquals(17 + 13, p.getCost());
+        assertEquals("r20c17", p.getEnd().getName());
+    }
+
+    @Test
+    public void testAStarOnScotlandYardMap() throws Exception
+    {
+        IGraph g = SYSolver.readGraphFromFile(new FileInputStream("files/scotmap.txt"));
+        Map<String, Point> positions = SYSolver.readPositionPoints("files/scotpos.txt");
+        Heuristic h = Heuristics.euclidean(g, positions);
+        for (int src = 0; src < g.getNodeCount(); src += 7) {
+            int[] expected = g.dijkstra(src);
+            for (int dst = 0; dst < g.getNodeCount(); dst += 5) {
+                assertTrue(h.estimate(src, dst) <= expected[dst]);
+                int[] ids = g.aStar(src, dst, h);
+                assertEquals(expected[dst], Path.fromIds(g, ids).getCost());
+            }
+        }
+    }
+
+    @Test
+    public void testAStarWithZeroHeuristicMatchesDijkstra()
+    {
+        IGraph g = randomGraph(150, 500, 20, 3);
+        int[] expected = referenceDijkstra(g, 0);
+        for (int dst = 0; dst < g.getNodeCount(); dst++) {
+            int[] ids = g.aStar(0, dst, Heuristics.zero());
+            if (expected[dst] == IGraph.UNREACHABLE) {
+                assertNull(ids);
+            } else {
+                assertEquals(expected[dst], Path.fromIds(g, ids).getCost());
+            }
+        }
+    }
+
+    @Test
+    public void testDijkstraStream()
+    {
+        for (int seed = 0; seed < 5; seed++) {
+            IGraph g = randomGraph(300, 1200, 20, seed);
+            int[] expected = referenceDijkstra(g, 0);
+            List<Map.Entry<INode, Integer>> settled = g.dijkstraStream("n0").collect(Collectors.toList());
+            int reachable = 0;
+            for (int cost : expected) {
+                if (cost != IGraph.UNREACHABLE) {
+                    reachable++;
+                }
+            }
+            assertEquals(reachable, settled.size());
+            int last = 0;
+            for (Map.Entry<INode, Integer> e : settled) {
+                assertEquals(expected[e.getKey().getId()], (int)e.getValue());
+                assertTrue(e.getValue() >= last);
+                last = e.getValue();
+            }
+        }
+        // the five cheapest nodes on a grid: the corner and its 2 + 3 closest neighbors
+        IGraph grid = GridGraph.makeGridGraph(300, 300);
+        List<Integer> costs = grid.dijkstraStream("r0c0").limit(6).map(Map.Entry::getValue).collect(Collectors.toList());
+        assertEquals(Arrays.asList(0, 1, 1, 2, 2, 2), costs);
+    }
+
+    /**
+     * Copy of the given graph with only the edges that have one of the given labels.
+     */
+    private static IGraph filtered(IGraph g, int labelMask)
+    {
+        IGraph f = new Graph();
+        for (int u = 0; u < g.getNodeCount(); u++) {
+            f.getOrCreateNode(g.getNodeById(u).getName());
+        }
+        for (int u = 0; u < g.getNodeCount(); u++) {
+            for (int v : g.neighborsOf(u, labelMask)) {
+                f.getNodeById(u).addDirectedEdgeToNode(f.getNodeById(v), g.weight(u, v), g.labels(u, v));
+            }
+        }
+        return f;
+    }
+
+    @Test
+    public void testConstrainedAnyOfMatchesFilteredGraph() throws Exception
+    {
+        IGraph map = SYSolver.readGraphFromFile(new FileInputStream("files/scotmap.txt"));
+        IGraph random = randomGraph(200, 1500, 30, 3);
+        Random r = new Random(3);
+        for (int u = 0; u < random.getNodeCount(); u++) {
+            for (int v : random.neighborsOf(u)) {
+                random.getNodeById(u).addDirectedEdgeToNode(random.getNodeById(v), random.weight(u, v), 1 << r.nextInt(3));
+            }
+        }
+        for (IGraph g : Arrays.asList(map, random)) {
+            for (int mask : new int[] {SYSolver.TAXI, SYSolver.TAXI | SYSolver.BUS, SYSolver.UNDERGROUND}) {
+                IGraph f = filtered(g, mask);
+                LabelAutomaton a = LabelAutomaton.anyOf(mask);
+                for (int src = 0; src < g.getNodeCount(); src += 13) {
+                    int[] expected = f.dijkstra(src);
+                    for (int dst = 0; dst < g.getNodeCount(); dst += 3) {
+                        int[] ids = g.constrainedShortestPath(src, dst, a);
+                        if (expected[dst] == IGraph.UNREACHABLE) {
+                            assertNull(ids);
+                        } else {
+                            assertEquals(expected[dst], Path.fromIds(f, ids).getCost());
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testConstrainedSequence()
+    {
+        // A -1- B -1- C by taxi, and A -5- C by bus
+        IGraph g = new Graph();
+        INode a = g.getOrCreateNode("A");
+        INode b = g.getOrCreateNode("B");
+        INode c = g.getOrCreateNode("C");
+        a.addUndirectedEdgeToNode(b, 1, SYSolver.TAXI);
+        b.addUndirectedEdgeToNode(c, 1, SYSolver.TAXI);
+        a.addUndirectedEdgeToNode(c, 5, SYSolver.BUS);
+        
+        assertEquals("A -> B -> C (cost 2)", g.constrainedShortestPath("A", "C", LabelAutomaton.anyOf(SYSolver.TAXI)).toString());
+        assertEquals("A -> C (cost 5)", g.constrainedShortestPath("A", "C", LabelAutomaton.anyOf(SYSolver.BUS)).toString());
+        assertNull(g.constrainedShortestPath("A", "B", LabelAutomaton.anyOf(SYSolver.BUS)));
+        // bus first, then taxi: has to go A -> C -> B
+        assertEquals("A -> C -> B (cost 6)",
+                g.constrainedShortestPath("A", "B", LabelAutomaton.sequence(SYSolver.BUS, SYSolver.TAXI)).toString());
+        // exactly three taxi rides from A to B goes back and forth
+        Path p = g.constrainedShortestPath("A", "B",
+                LabelAutomaton.sequence(SYSolver.TAXI, SYSolver.TAXI, SYSolver.TAXI));
+        assertEquals(3, p.getLength());
+        assertEquals(3, p.getCost());
+        assertNull(g.constrainedShortestPath("A", "C", LabelAutomaton.sequence(SYSolver.TAXI)));
+        // the empty path matches anyOf
+        assertEquals(0, g.constrainedShortestPath("A", "A", LabelAutomaton.anyOf(SYSolver.BUS)).getLength());
+    }
+
+    @Test
+    public void testConstrainedUnlabeledEdges()
+    {
+        // A -1- B -1- C without labels, and A -5- C by bus
+        IGraph g = new Graph();
+        INode a = g.getOrCreateNode("A");
+        INode b = g.getOrCreateNode("B");
+        INode c = g.getOrCreateNode("C");
+        a.addUndirectedEdgeToNode(b, 1);
+        b.addUndirectedEdgeToNode(c, 1);
+        a.addUndirectedEdgeToNode(c, 5, SYSolver.BUS);
+        
+        // ANY_EDGE lets through edges without labels
+        assertEquals("A -> B -> C (cost 2)", g.constrainedShortestPath("A", "C", LabelAutomaton.anyOf(IGraph.ANY_EDGE)).toString());
+        assertEquals("A -> C -> B (cost 6)",
+                g.constrainedShortestPath("A", "B", LabelAutomaton.sequence(SYSolver.BUS, IGraph.ANY_EDGE)).toString());
+        // but no other mask does
+        assertEquals("A -> C (cost 5)", g.constrainedShortestPath("A", "C", LabelAutomaton.anyOf(0xFF)).toString());
+        assertNull(g.constrainedShortestPath("A", "B", LabelAutomaton.anyOf(0xFF)));
+        // on unit weights the search is a BFS
+        IGraph u = new Graph();
+        u.getOrCreateNode("A").addUndirectedEdgeToNode(u.getOrCreateNode("B"), 1);
+        u.getOrCreateNode("B").addUndirectedEdgeToNode(u.getOrCreateNode("C"), 1);
+        assertEquals(2, u.constrainedShortestPath("A", "C", LabelAutomaton.anyOf(IGraph.ANY_EDGE)).getLength());
+        assertNull(u.constrainedShortestPath("A", "C", LabelAutomaton.anyOf(SYSolver.TAXI)));
+    }
+}
@@ -0,0 +1,82 @@
+package junit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.awt.Point;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+import graph.SpatialIndex;
+import graph.impl.SYSolver;
+
+public class TestSpatialIndex
+{
+    private static long distanceSquared(Point a, Point b) {
+        long dx = a.x - b.x;
+        long dy = a.y - b.y;
+        return dx * dx + dy * dy;
+    }
+    
+    private static void checkAgainstScan(Map<String, Point> points, Random random, int width, int height) {
+        SpatialIndex index = new SpatialIndex(points);
+        assertEquals(points.size(), index.size());
+        for (int i = 0; i < 500; i++) {
+            Point p = new Point(random.nextInt(width), random.nextInt(height));
+            long best = Long.MAX_VALUE;
+            for (Point q : points.values()) {
+                best = Math.min(best, distanceSquared(p, q));
+            }
+            // ties can go either way, so compare distances
+            assertEquals(best, distanceSquared(p, points.get(index.nearest(p))));
+            
+            double radius = random.nextInt(150);
+            List<String> expected = new ArrayList<>();
+            for (Map.Entry<String, Point> e : points.entrySet()) {
+                if (distanceSquared(p, e.getValue()) <= radius * radius) {
+                    expected.add(e.getKey());
+                }
+            }
+            List<String> found = index.withinRadius(p, radius);
+            for (int k = 1; k < found.size(); k++) {
+                assertEquals(true, distanceSquared(p, points.get(found.get(k - 1))) <= distanceSquared(p, points.get(found.get(k))));
+            }
+            Collections.sort(expected);
+            Collections.sort(found);
+            assertEquals(expected, found);
+        }
+    }
+    
+    @Test
+    public void testScotlandYardPositions() throws Exception {
+        Map<String, Point> points = SYSolver.readPositionPoints("files/scotpos.txt");
+        SpatialIndex index = new SpatialIndex(points);
+        assertEquals("3", index.nearest(new Point(406, 40)));
+        assertEquals("3", index.nearest(new Point(409, 44)));
+        checkAgainstScan(points, new Random(1), 1100, 800);
+    }
+    
+    @Test
+    public void testRandomPoints() {
+        Random random = new Random(2);
+        Map<String, Point> points = new HashMap<>();
+        for (int i = 0; i < 5000; i++) {
+            // a small range so there are plenty of duplicate coordinates
+            points.put("p" + i, new Point(random.nextInt(300), random.nextInt(300)));
+        }
+        checkAgainstScan(points, random, 300, 300);
+    }
+    
+    @Test
+    public void testEmpty() {
+        SpatialIndex index = new SpatialIndex(new HashMap<String, Point>());
+        assertNull(index.nearest(new Point(1, 2)));
+        assertEquals(0, index.withinRadius(new Point(1, 2), 10).size());
+    }
+}
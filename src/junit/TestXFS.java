@@ -2,14 +2,27 @@ package junit;
 
 import static org.junit.Assert.*;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 
 import org.junit.Test;
 
+import graph.BfsTree;
+import graph.DepthFirstVisitor;
+import graph.GridGraph;
 import graph.IGraph;
 import graph.INode;
 import graph.NodeVisitor;
+import graph.VisitResult;
+import graph.impl.CompactGraph;
 import graph.impl.Graph;
 
 public class TestXFS
@@ -139,4 +152,313 @@ graph dfs1 {
         assertEquals("A", order.get(0));
         assertEquals("E", order.get(2));
     }
+    
+    /**
+     * Hop counts with a plain queue, to check the direction-optimizing BFS against.
+     */
+    private static int[] referenceHops(IGraph g, int source) {
+        int[] hops = new int[g.getNodeCount()];
+        Arrays.fill(hops, IGraph.UNREACHABLE);
+        LinkedList<Integer> queue = new LinkedList<>();
+        hops[source] = 0;
+        queue.add(source);
+        while (!queue.isEmpty()) {
+            int u = queue.remove();
+            for (int v : g.neighborsOf(u)) {
+                if (hops[v] == IGraph.UNREACHABLE) {
+                    hops[v] = hops[u] + 1;
+                    queue.add(v);
+                }
+            }
+        }
+        return hops;
+    }
+    
+    @Test
+    public void testHopsOnLowDiameterGraphs() {
+        // lots of edges per node, so the frontier gets big quickly and the
+        // search switches to bottom-up for the middle levels
+        Random random = new Random(42);
+        for (int directed = 0; directed < 2; directed++) {
+            IGraph g = new Graph();
+            for (int i = 0; i < 3000; i++) {
+                g.getOrCreateNode("n" + i);
+            }
+            for (int i = 0; i < 20000; i++) {
+                INode src = g.getNodeById(random.nextInt(3000));
+                INode dst = g.getNodeById(random.nextInt(3000));
+                if (directed == 1) {
+                    src.addDirectedEdgeToNode(dst, 1);
+                } else {
+                    src.addUndirectedEdgeToNode(dst, 1);
+                }
+            }
+            for (int source = 0; source < 10; source++) {
+                assertArrayEquals(referenceHops(g, source), g.bfs(source));
+            }
+        }
+    }
+    
+    @Test
+    public void testHopsOnGrid() {
+        IGraph g = GridGraph.makeGridGraph(20, 30);
+        int[] hops = g.bfs(g.getNodeId("r0c0"));
+        assertEquals(19 + 29, hops[g.getNodeId("r19c29")]);
+        assertEquals(5 + 7, hops[g.getNodeId("r5c7")]);
+        assertArrayEquals(referenceHops(g, 17), g.bfs(17));
+    }
+    
+    private static IGraph randomGraph(int nodes, int edges, long seed) {
+        Random random = new Random(seed);
+        IGraph g = new Graph();
+        for (int i = 0; i < nodes; i++) {
+            g.getOrCreateNode("n" + i);
+        }
+        for (int i = 0; i < edges; i++) {
+            INode src = g.getNodeById(random.nextInt(nodes));
+            INode dst = g.getNodeById(random.nextInt(nodes));
+            src.addDirectedEdgeToNode(dst, 1);
+        }
+        return g;
+    }
+    
+    @Test
+    public void testParallelBfs() {
+        IGraph g = randomGraph(20000, 100000, 7);
+        AtomicInteger visits = new AtomicInteger();
+        BfsTree tree = g.parallelBfs(3, node -> visits.incrementAndGet(), false);
+        int[] hops = tree.getHops();
+        int[] parents = tree.getParents();
+        assertArrayEquals(referenceHops(g, 3), hops);
+        int reached = 0;
+        for (int v = 0; v < hops.length; v++) {
+            if (!tree.isReachable(v)) {
+                assertEquals(-1, parents[v]);
+                continue;
+            }
+            reached++;
+            if (v == 3) {
+                assertEquals(-1, parents[v]);
+            } else {
+                // the parent is one level up and has an edge to the node
+                assertEquals(hops[v] - 1, hops[parents[v]]);
+                g.weight(parents[v], v);
+            }
+        }
+        assertEquals(reached, visits.get());
+    }
+    
+    @Test
+    public void testParallelBfsDeterministic() {
+        IGraph g = randomGraph(20000, 100000, 11);
+        List<Integer> order = new ArrayList<>();
+        BfsTree tree = g.parallelBfs(0, node -> order.add(node.getId()), true);
+        int[] hops = tree.getHops();
+        int[] parents = tree.getParents();
+        assertArrayEquals(referenceHops(g, 0), hops);
+        // level by level, increasing ids within a level
+        for (int i = 1; i < order.size(); i++) {
+            int a = order.get(i - 1);
+            int b = order.get(i);
+            assertTrue(hops[a] < hops[b] || (hops[a] == hops[b] && a < b));
+        }
+        // every parent is the smallest id one level up with an edge to the node
+        int[] smallest = new int[hops.length];
+        Arrays.fill(smallest, -1);
+        for (int u = hops.length - 1; u >= 0; u--) {
+            if (!tree.isReachable(u)) {
+                continue;
+            }
+            for (int v : g.neighborsOf(u)) {
+                if (v != 0 && hops[v] == hops[u] + 1) {
+                    smallest[v] = u;
+                }
+            }
+        }
+        assertArrayEquals(smallest, parents);
+        assertArrayEquals(parents, g.parallelBfs(0, null, true).getParents());
+    }
+    
+    @Test
+    public void testParallelBfsCompactViews() {
+        CompactGraph g = new CompactGraph(randomGraph(20000, 100000, 5));
+        ConcurrentMap<Integer, INode> views = new ConcurrentHashMap<>();
+        AtomicInteger mismatches = new AtomicInteger();
+        NodeVisitor v = node -> {
+            // neighbors are shared between nodes, so several worker threads
+            // ask for the same views at the same time
+            List<INode> seen = new ArrayList<>(node.getNeighbors());
+            seen.add(node);
+            for (INode n : seen) {
+                INode first = views.putIfAbsent(n.getId(), n);
+                if (first != null && first != n) {
+                    mismatches.incrementAndGet();
+                }
+            }
+        };
+        // the views are created by the worker threads on the first search
+        g.parallelBfs(0, v, false);
+        g.parallelBfs(0, v, false);
+        assertEquals(0, mismatches.get());
+        for (Map.Entry<Integer, INode> e : views.entrySet()) {
+            assertTrue(e.getValue() == g.getNodeById(e.getKey()));
+        }
+    }
+    
+    @Test
+    public void testDFSEvents() {
+        // same graph as testDFS1
+        IGraph g = new Graph();
+        INode a = g.getOrCreateNode("A");
+        INode b = g.getOrCreateNode("B");
+        INode c = g.getOrCreateNode("C");
+        INode d = g.getOrCreateNode("D");
+        INode e = g.getOrCreateNode("E");
+        a.addUndirectedEdgeToNode(b, 1);
+        a.addUndirectedEdgeToNode(c, 1);
+        a.addUndirectedEdgeToNode(d, 1);
+        b.addUndirectedEdgeToNode(e, 1);
+        c.addUndirectedEdgeToNode(e, 1);
+        d.addUndirectedEdgeToNode(e, 1);
+        
+        List<String> events = new ArrayList<>();
+        g.depthFirstSearch("A", new DepthFirstVisitor() {
+            @Override
+            public void discover(INode node) {
+                events.add("+" + node.getName());
+            }
+            @Override
+            public void finish(INode node) {
+                events.add("-" + node.getName());
+            }
+            @Override
+            public void treeEdge(INode parent, INode child) {
+                events.add(parent.getName() + child.getName());
+            }
+        });
+        assertEquals(Arrays.asList("+A", "AB", "+B", "BE", "+E", "EC", "+C", "-C",
+                "ED", "+D", "-D", "-E", "-B", "-A"), events);
+    }
+    
+    @Test
+    public void testDFSTreeOnGrid() {
+        // a DFS tree of a connected graph has one edge fewer than it has nodes
+        IGraph g = GridGraph.makeGridGraph(200, 200);
+        int[] counts = new int[3];
+        g.depthFirstSearch("r0c0", new DepthFirstVisitor() {
+            @Override
+            public void discover(INode node) {
+                counts[0]++;
+            }
+            @Override
+            public void finish(INode node) {
+                counts[1]++;
+            }
+            @Override
+            public void treeEdge(INode parent, INode child) {
+                assertTrue(parent.hasEdge(child));
+                counts[2]++;
+            }
+        });
+        assertEquals(200 * 200, counts[0]);
+        assertEquals(200 * 200, counts[1]);
+        assertEquals(200 * 200 - 1, counts[2]);
+    }
+    
+    @Test
+    public void testSearchStops() {
+        IGraph g = GridGraph.makeGridGraph(100, 100);
+        List<String> seen = new ArrayList<>();
+        // nearest node in column 3
+        assertTrue(g.searchBreadthFirst("r0c0", node -> {
+            seen.add(node.getName());
+            return node.getName().endsWith("c3") ? VisitResult.STOP : VisitResult.CONTINUE;
+        }));
+        assertEquals("r0c3", seen.get(seen.size() - 1));
+        // never gets past the third level: at most 1 + 2 + 3 + 4 nodes
+        assertTrue(seen.size() <= 10);
+        
+        seen.clear();
+        assertTrue(g.searchDepthFirst("r0c0", node -> {
+            seen.add(node.getName());
+            return seen.size() == 4 ? VisitResult.STOP : VisitResult.CONTINUE;
+        }));
+        assertEquals(4, seen.size());
+        
+        assertFalse(g.searchBreadthFirst("r0c0", node -> VisitResult.CONTINUE));
+    }
+    
+    @Test
+    public void testSearchSkipsChildren() {
+        // A -- B -- D and A -- C, where B is pruned
+        IGraph g = new Graph();
+        INode a = g.getOrCreateNode("A");
+        INode b = g.getOrCreateNode("B");
+        INode c = g.getOrCreateNode("C");
+        INode d = g.getOrCreateNode("D");
+        a.addUndirectedEdgeToNode(b, 1);
+        a.addUndirectedEdgeToNode(c, 1);
+        b.addUndirectedEdgeToNode(d, 1);
+        
+        List<String> bfs = new ArrayList<>();
+        assertFalse(g.searchBreadthFirst("A", node -> {
+            bfs.add(node.getName());
+            return node == b ? VisitResult.SKIP_CHILDREN : VisitResult.CONTINUE;
+        }));
+        assertEquals(Arrays.asList("A", "B", "C"), bfs);
+        
+        List<String> dfs = new ArrayList<>();
+        assertFalse(g.searchDepthFirst("A", node -> {
+            dfs.add(node.getName());
+            return node == b ? VisitResult.SKIP_CHILDREN : VisitResult.CONTINUE;
+        }));
+        assertEquals(Arrays.asList("A", "B", "C"), dfs);
+        
+        // D can still be reached another way
+        c.addUndirectedEdgeToNode(d, 1);
+        dfs.clear();
+        g.searchDepthFirst("A", node -> {
+            dfs.add(node.getName());
+            return node == b ? VisitResult.SKIP_CHILDREN : VisitResult.CONTINUE;
+        });
+        assertEquals(Arrays.asList("A", "B", "C", "D"), dfs);
+    }
+    
+    @Test
+    public void testTraversalStreams() {
+        IGraph g = randomGraph(2000, 8000, 3);
+        OrderedNodeVisitor bfs = new OrderedNodeVisitor();
+        g.breadthFirstSearch("n0", bfs);
+        assertEquals(bfs.getOrder(), g.bfsStream("n0").map(INode::getName).collect(Collectors.toList()));
+        OrderedNodeVisitor dfs = new OrderedNodeVisitor();
+        g.depthFirstSearch("n0", dfs);
+        assertEquals(dfs.getOrder(), g.dfsStream("n0").map(INode::getName).collect(Collectors.toList()));
+        
+        assertEquals(bfs.getOrder().subList(0, 5),
+                g.bfsStream("n0").limit(5).map(INode::getName).collect(Collectors.toList()));
+        // findFirst stops pulling nodes once it has a match
+        AtomicInteger pulled = new AtomicInteger();
+        INode found = GridGraph.makeGridGraph(100, 100).dfsStream("r0c0")
+                .peek(node -> pulled.incrementAndGet())
+                .filter(node -> node.getName().endsWith("c3")).findFirst().get();
+        assertTrue(found.getName().endsWith("c3"));
+        assertTrue(pulled.get() < 100 * 100);
+    }
+    
+    @Test
+    public void testMultiSourceBfs() {
+        // more than 64 sources, so the masks take several lanes
+        IGraph g = randomGraph(3000, 12000, 5);
+        int[] sources = new int[150];
+        for (int i = 0; i < sources.length; i++) {
+            sources[i] = (i * 37) % 3000;
+        }
+        sources[149] = sources[0];
+        int[][] hops = g.multiSourceBfs(sources);
+        assertEquals(sources.length, hops.length);
+        for (int i = 0; i < sources.length; i++) {
+            assertArrayEquals(referenceHops(g, sources[i]), hops[i]);
+        }
+        assertEquals(0, g.multiSourceBfs().length);
+    }
 }